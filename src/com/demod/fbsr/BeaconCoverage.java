@@ -0,0 +1,94 @@
+package com.demod.fbsr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the tile ranges supplied by beacons. Each beacon keeps its range
+ * once, and is listed in the 8x8 tile buckets its range overlaps, so a lookup
+ * tests a handful of ranges instead of walking per tile lists.
+ */
+public class BeaconCoverage {
+	private static final int BUCKET_BITS = 3;
+
+	private final List<BlueprintEntity> beacons = new ArrayList<>();
+	private int[] minXs = new int[16];
+	private int[] minYs = new int[16];
+	private int[] maxXs = new int[16];
+	private int[] maxYs = new int[16];
+
+	// Beacon IDs, the first element is the count
+	private final ChunkedObjectGrid<int[]> buckets = new ChunkedObjectGrid<>();
+
+	/**
+	 * Adds a beacon supplying the tiles from (minX, minY) up to but not
+	 * including (maxX, maxY).
+	 */
+	public void add(BlueprintEntity beacon, int minX, int minY, int maxX, int maxY) {
+		if (minX >= maxX || minY >= maxY) {
+			return;
+		}
+		int id = beacons.size();
+		beacons.add(beacon);
+		if (id == minXs.length) {
+			minXs = Arrays.copyOf(minXs, id * 2);
+			minYs = Arrays.copyOf(minYs, id * 2);
+			maxXs = Arrays.copyOf(maxXs, id * 2);
+			maxYs = Arrays.copyOf(maxYs, id * 2);
+		}
+		minXs[id] = minX;
+		minYs[id] = minY;
+		maxXs[id] = maxX;
+		maxYs[id] = maxY;
+
+		for (int by = minY >> BUCKET_BITS; by <= (maxY - 1) >> BUCKET_BITS; by++) {
+			for (int bx = minX >> BUCKET_BITS; bx <= (maxX - 1) >> BUCKET_BITS; bx++) {
+				int[] bucket = buckets.getOrCreate(bx, by, () -> new int[4]);
+				if (bucket[0] + 1 == bucket.length) {
+					bucket = Arrays.copyOf(bucket, bucket.length * 2);
+					buckets.set(bx, by, bucket);
+				}
+				bucket[++bucket[0]] = id;
+			}
+		}
+	}
+
+	/**
+	 * Beacons supplying any of the tiles, each listed once in the order the
+	 * tiles are given and then the order the beacons were added.
+	 */
+	public List<BlueprintEntity> getBeacons(int[] tileXs, int[] tileYs) {
+		int[] ids = new int[8];
+		int count = 0;
+		for (int i = 0; i < tileXs.length; i++) {
+			int x = tileXs[i];
+			int y = tileYs[i];
+			int[] bucket = buckets.get(x >> BUCKET_BITS, y >> BUCKET_BITS);
+			if (bucket == null) {
+				continue;
+			}
+			nextBeacon: for (int j = 1; j <= bucket[0]; j++) {
+				int id = bucket[j];
+				if (x < minXs[id] || x >= maxXs[id] || y < minYs[id] || y >= maxYs[id]) {
+					continue;
+				}
+				for (int k = 0; k < count; k++) {
+					if (ids[k] == id) {
+						continue nextBeacon;
+					}
+				}
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count++] = id;
+			}
+		}
+
+		List<BlueprintEntity> ret = new ArrayList<>(count);
+		for (int k = 0; k < count; k++) {
+			ret.add(beacons.get(ids[k]));
+		}
+		return ret;
+	}
+}
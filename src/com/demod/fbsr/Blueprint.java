@@ -17,8 +17,10 @@ public class Blueprint {
 
 	private final JSONObject json;
 
-	private final List<BlueprintEntity> entities = new ArrayList<>();
-	private final List<BlueprintTile> tiles = new ArrayList<>();
+	// Built from the JSON when first needed
+	private EntityTable entityTable = null;
+	private List<BlueprintEntity> entities = null;
+	private List<BlueprintTile> tiles = null;
 	private Optional<String> label;
 	private MapVersion version;
 	private Optional<JSONArray> icons;
@@ -36,18 +38,6 @@ public class Blueprint {
 			version = new MapVersion();
 		}
 
-		if (blueprintJson.has("entities")) {
-			Utils.forEach(blueprintJson.getJSONArray("entities"), (JSONObject j) -> {
-				entities.add(new BlueprintEntity(j, version));
-			});
-		}
-
-		if (blueprintJson.has("tiles")) {
-			Utils.forEach(blueprintJson.getJSONArray("tiles"), (JSONObject j) -> {
-				tiles.add(new BlueprintTile(j));
-			});
-		}
-
 		if (blueprintJson.has("label")) {
 			label = Optional.of(blueprintJson.getString("label"));
 		} else {
@@ -62,10 +52,23 @@ public class Blueprint {
 
 	}
 
-	public List<BlueprintEntity> getEntities() {
+	public synchronized List<BlueprintEntity> getEntities() {
+		if (entities == null) {
+			parseContents();
+		}
 		return entities;
 	}
 
+	/**
+	 * The entities in columns, with the same order as {@link #getEntities()}.
+	 */
+	public synchronized EntityTable getEntityTable() {
+		if (entityTable == null) {
+			parseContents();
+		}
+		return entityTable;
+	}
+
 	public Optional<JSONArray> getIcons() {
 		return icons;
 	}
@@ -78,7 +81,10 @@ public class Blueprint {
 		return renderTime;
 	}
 
-	public List<BlueprintTile> getTiles() {
+	public synchronized List<BlueprintTile> getTiles() {
+		if (tiles == null) {
+			parseContents();
+		}
 		return tiles;
 	}
 
@@ -94,6 +100,33 @@ public class Blueprint {
 		return json;
 	}
 
+	private void parseContents() {
+		JSONObject blueprintJson = json.getJSONObject("blueprint");
+		List<JSONObject> entityJsons = new ArrayList<>();
+		List<BlueprintTile> tiles = new ArrayList<>();
+
+		if (blueprintJson.has("entities")) {
+			Utils.forEach(blueprintJson.getJSONArray("entities"), (JSONObject j) -> {
+				entityJsons.add(j);
+			});
+		}
+		EntityTable entityTable = new EntityTable(entityJsons, version);
+		List<BlueprintEntity> entities = new ArrayList<>(entityTable.getSize());
+		for (int row = 0; row < entityTable.getSize(); row++) {
+			entities.add(new BlueprintEntity(entityTable, row));
+		}
+
+		if (blueprintJson.has("tiles")) {
+			Utils.forEach(blueprintJson.getJSONArray("tiles"), (JSONObject j) -> {
+				tiles.add(new BlueprintTile(j));
+			});
+		}
+
+		this.entityTable = entityTable;
+		this.entities = entities;
+		this.tiles = tiles;
+	}
+
 	public void setIcons(Optional<JSONArray> icons) {
 		this.icons = icons;
 	}
@@ -0,0 +1,303 @@
+package com.demod.fbsr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Zlib codecs and growable buffers of one thread, reused by every blueprint
+ * string it encodes or decodes. Buffers keep the largest size they have
+ * needed, so steady use allocates little beyond the strings and JSON trees.
+ */
+public class BlueprintCodecPool {
+	/**
+	 * Streams the UTF-8 text inflated from the compressed bytes of the pool.
+	 */
+	private class InflatingReader extends Reader {
+		private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private boolean endOfInput;
+		private boolean flushed;
+
+		@Override
+		public void close() {
+		}
+
+		private void fill() throws IOException {
+			bytes.compact();
+			try {
+				int count = inflater.inflate(bytes.array(), bytes.position(), bytes.remaining());
+				bytes.position(bytes.position() + count);
+				if (count == 0) {
+					if (inflater.finished()) {
+						endOfInput = true;
+					} else if (inflater.needsDictionary()) {
+						throw new ZipException("Unsupported ZLIB preset dictionary");
+					} else if (inflater.needsInput()) {
+						throw new EOFException("Unexpected end of ZLIB input stream");
+					}
+				}
+			} catch (DataFormatException e) {
+				throw new ZipException(e.getMessage());
+			} finally {
+				bytes.flip();
+			}
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (flushed) {
+				return -1;
+			}
+			CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+			while (out.position() == off) {
+				CoderResult result = decoder.decode(bytes, out, endOfInput);
+				if (result.isError()) {
+					result.throwException();
+				}
+				if (result.isOverflow()) {
+					break;
+				}
+				if (endOfInput) {
+					decoder.flush(out);
+					flushed = true;
+					break;
+				}
+				if (out.position() == off) {
+					fill();
+				}
+			}
+			int count = out.position() - off;
+			return count == 0 ? -1 : count;
+		}
+
+		private void restart() {
+			bytes.clear().flip();
+			decoder.reset();
+			endOfInput = false;
+			flushed = false;
+		}
+	}
+
+	/**
+	 * Appends the UTF-8 bytes of the text written to the pool's text buffer.
+	 */
+	private class TextWriter extends Writer {
+		private char highSurrogate = 0;
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		private void put(int b) {
+			if (textLength == text.length) {
+				text = Arrays.copyOf(text, text.length * 2);
+			}
+			text[textLength++] = (byte) b;
+		}
+
+		private void putCodePoint(int c) {
+			if (c < 0x80) {
+				put(c);
+			} else if (c < 0x800) {
+				put(0xC0 | (c >> 6));
+				put(0x80 | (c & 0x3F));
+			} else if (c < 0x10000) {
+				put(0xE0 | (c >> 12));
+				put(0x80 | ((c >> 6) & 0x3F));
+				put(0x80 | (c & 0x3F));
+			} else {
+				put(0xF0 | (c >> 18));
+				put(0x80 | ((c >> 12) & 0x3F));
+				put(0x80 | ((c >> 6) & 0x3F));
+				put(0x80 | (c & 0x3F));
+			}
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				write(cbuf[i]);
+			}
+		}
+
+		@Override
+		public void write(int c) {
+			char ch = (char) c;
+			if (highSurrogate != 0) {
+				char high = highSurrogate;
+				highSurrogate = 0;
+				if (Character.isLowSurrogate(ch)) {
+					putCodePoint(Character.toCodePoint(high, ch));
+					return;
+				}
+				put('?');
+			}
+			if (Character.isHighSurrogate(ch)) {
+				highSurrogate = ch;
+			} else if (Character.isLowSurrogate(ch)) {
+				put('?');
+			} else {
+				putCodePoint(ch);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				write(str.charAt(i));
+			}
+		}
+	}
+
+	private static final char[] BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.toCharArray();
+	private static final byte[] BASE64_VALUES = new byte[128];
+	static {
+		Arrays.fill(BASE64_VALUES, (byte) -1);
+		for (int i = 0; i < BASE64_CHARS.length; i++) {
+			BASE64_VALUES[BASE64_CHARS[i]] = (byte) i;
+		}
+		// URL safe alphabet, as accepted by commons-codec
+		BASE64_VALUES['-'] = 62;
+		BASE64_VALUES['_'] = 63;
+	}
+
+	private static final ThreadLocal<BlueprintCodecPool> pools = ThreadLocal.withInitial(BlueprintCodecPool::new);
+
+	/**
+	 * The pool of the current thread.
+	 */
+	public static BlueprintCodecPool get() {
+		return pools.get();
+	}
+
+	private final Deflater deflater = new Deflater();
+	private final Inflater inflater = new Inflater();
+	private final InflatingReader inflatingReader = new InflatingReader();
+	private final TextWriter textWriter = new TextWriter();
+
+	private byte[] text = new byte[8192];
+	private int textLength = 0;
+	private byte[] compressed = new byte[4096];
+	private int compressedLength = 0;
+	private char[] chars = new char[8192];
+
+	private final char[] parserBuffer = new char[8192];
+
+	private BlueprintCodecPool() {
+	}
+
+	/**
+	 * Decodes the base64 characters of the string from the index (skipping
+	 * anything outside of the alphabet, and stopping at padding) into the
+	 * compressed buffer, and returns a reader of the text they inflate to. The
+	 * reader is valid until the next use of the pool.
+	 */
+	public Reader decode(String blueprintString, int index) {
+		compressedLength = 0;
+		int bits = 0;
+		int bitCount = 0;
+		for (int i = index; i < blueprintString.length(); i++) {
+			char c = blueprintString.charAt(i);
+			if (c == '=') {
+				break;
+			}
+			int value = c < 128 ? BASE64_VALUES[c] : -1;
+			if (value < 0) {
+				continue;
+			}
+			bits = (bits << 6) | value;
+			bitCount += 6;
+			if (bitCount >= 8) {
+				bitCount -= 8;
+				if (compressedLength == compressed.length) {
+					compressed = Arrays.copyOf(compressed, compressed.length * 2);
+				}
+				compressed[compressedLength++] = (byte) (bits >> bitCount);
+			}
+		}
+
+		inflater.reset();
+		inflater.setInput(compressed, 0, compressedLength);
+		inflatingReader.restart();
+		return inflatingReader;
+	}
+
+	/**
+	 * Deflates the text written to {@link #startText()} and returns it as a
+	 * version 0 blueprint string.
+	 */
+	public String encodeText() {
+		deflater.reset();
+		deflater.setInput(text, 0, textLength);
+		deflater.finish();
+		compressedLength = 0;
+		while (!deflater.finished()) {
+			if (compressedLength == compressed.length) {
+				compressed = Arrays.copyOf(compressed, compressed.length * 2);
+			}
+			compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+		}
+
+		int length = 1 + (compressedLength + 2) / 3 * 4;
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+		chars[0] = '0';
+		int pos = 1;
+		for (int i = 0; i < compressedLength; i += 3) {
+			int remaining = compressedLength - i;
+			int bits = (compressed[i] & 0xFF) << 16;
+			if (remaining > 1) {
+				bits |= (compressed[i + 1] & 0xFF) << 8;
+			}
+			if (remaining > 2) {
+				bits |= compressed[i + 2] & 0xFF;
+			}
+			chars[pos++] = BASE64_CHARS[(bits >> 18) & 0x3F];
+			chars[pos++] = BASE64_CHARS[(bits >> 12) & 0x3F];
+			chars[pos++] = remaining > 1 ? BASE64_CHARS[(bits >> 6) & 0x3F] : '=';
+			chars[pos++] = remaining > 2 ? BASE64_CHARS[bits & 0x3F] : '=';
+		}
+		return new String(chars, 0, pos);
+	}
+
+	/**
+	 * Character buffer for a {@link JSONPullParser} reading from
+	 * {@link #decode}.
+	 */
+	public char[] getParserBuffer() {
+		return parserBuffer;
+	}
+
+	/**
+	 * Clears the text buffer, and returns a writer that encodes into it as
+	 * UTF-8.
+	 */
+	public Writer startText() {
+		textLength = 0;
+		textWriter.highSurrogate = 0;
+		return textWriter;
+	}
+}
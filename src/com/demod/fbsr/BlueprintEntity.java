@@ -5,54 +5,25 @@ import java.awt.geom.Point2D;
 import org.json.JSONObject;
 
 import com.demod.factorio.Utils;
+import com.google.common.collect.Multiset;
 
+/**
+ * An entity of a blueprint, read from its row of the blueprint's
+ * {@link EntityTable}.
+ */
 public class BlueprintEntity {
-	private final JSONObject json;
+	private final EntityTable table;
+	private final int row;
 
-	private final int id;
-	private final String name;
-	private final Point2D.Double position;
-	private final Direction direction;
-
-	private final boolean jsonNewFormat;
-
-	public BlueprintEntity(JSONObject entityJson, MapVersion version) {
-		json = entityJson;
-
-		id = entityJson.getInt("entity_number");
-
-		String name = entityJson.getString("name");
-		// TODO new format temporary renaming to old 1.0 names
-		if (name.equals("legacy-curved-rail")) {
-			name = "curved-rail";
-		} else if (name.equals("legacy-straight-rail")) {
-			name = "straight-rail";
-		} else if (name.equals("active-provider-chest")) {
-			name = "logistic-chest-active-provider";
-		} else if (name.equals("passive-provider-chest")) {
-			name = "logistic-chest-passive-provider";
-		} else if (name.equals("storage-chest")) {
-			name = "logistic-chest-storage";
-		} else if (name.equals("buffer-chest")) {
-			name = "logistic-chest-buffer";
-		} else if (name.equals("requester-chest")) {
-			name = "logistic-chest-requester";
-		} else if (name.equals("bulk-inserter")) {
-			name = "stack-inserter";
-		}
-		this.name = name;
-
-		position = Utils.parsePoint2D(entityJson.getJSONObject("position"));
-
-		direction = Direction.fromEntityJSON(entityJson, version);
-
-		jsonNewFormat = version.greaterOrEquals(Blueprint.VERSION_NEW_FORMAT);
+	public BlueprintEntity(EntityTable table, int row) {
+		this.table = table;
+		this.row = row;
 	}
 
 	public void debugPrint() {
 		System.out.println();
 		System.out.println(getName());
-		Utils.debugPrintJson(json);
+		Utils.debugPrintJson(json());
 	}
 
 	@Override
@@ -64,38 +35,108 @@ public class BlueprintEntity {
 		if (getClass() != obj.getClass())
 			return false;
 		BlueprintEntity other = (BlueprintEntity) obj;
-		if (id != other.id)
+		if (getId() != other.getId())
 			return false;
 		return true;
 	}
 
+	/**
+	 * Circuit wires of the entity, see {@link EntityTable#getConnections(int)}.
+	 */
+	public int[] getConnections() {
+		return table.getConnections(row);
+	}
+
 	public Direction getDirection() {
-		return direction;
+		return table.getDirection(row);
 	}
 
 	public int getId() {
-		return id;
+		return table.getId(row);
+	}
+
+	/**
+	 * Items requested into the entity, null if it has none.
+	 */
+	public Multiset<String> getItems() {
+		return table.getItems(row);
+	}
+
+	/**
+	 * The error of parsing the items or connections of the entity, null if
+	 * there was none. Those fields then read as if the entity had none.
+	 */
+	public Exception getLoadError() {
+		return table.getLoadError(row);
 	}
 
 	public String getName() {
-		return name;
+		return table.getName(row);
+	}
+
+	public int getNameId() {
+		return table.getNameId(row);
 	}
 
 	public Point2D.Double getPosition() {
-		return position;
+		return new Point2D.Double(table.getX(row), table.getY(row));
+	}
+
+	/**
+	 * The recipe of the entity, or null if it has none.
+	 */
+	public String getRecipe() {
+		return table.getRecipe(row);
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public EntityTable getTable() {
+		return table;
+	}
+
+	/**
+	 * The X coordinate of {@link #getPosition()}, without allocating a point.
+	 */
+	public double getX() {
+		return table.getX(row);
+	}
+
+	public double getY() {
+		return table.getY(row);
 	}
 
 	@Override
 	public int hashCode() {
-		return id;
+		return getId();
+	}
+
+	/**
+	 * Whether the entity is an underground or loader of the input type.
+	 */
+	public boolean isInput() {
+		return table.getType(row) == EntityTable.TYPE_INPUT;
 	}
 
 	public boolean isJsonNewFormat() {
-		return jsonNewFormat;
+		return table.isJsonNewFormat();
 	}
 
 	public JSONObject json() {
-		return json;
+		return table.json(row);
+	}
+
+	/**
+	 * Reads the entity again from its JSON, after it was edited.
+	 */
+	public void reload() {
+		table.load(row);
+	}
+
+	public void setPosition(double x, double y) {
+		table.setPosition(row, x, y);
 	}
 
 }
@@ -1,58 +1,51 @@
 package com.demod.fbsr;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayDeque;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
-import org.apache.commons.codec.binary.Base64;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import com.google.common.base.Charsets;
-
 public class BlueprintStringData {
-	private static String cleanupBlueprintString(String blueprintString) {
-		// Remove new lines
-		blueprintString = blueprintString.replaceAll("\\r|\\n", "");
+	/**
+	 * Pages of the string, each built into a {@link Blueprint} when first
+	 * accessed.
+	 */
+	private class PageList extends AbstractList<Blueprint> {
+		private final Blueprint[] blueprints = new Blueprint[pageJsons.size()];
+
+		@Override
+		public synchronized Blueprint get(int index) {
+			Blueprint ret = blueprints[index];
+			if (ret == null) {
+				ret = new Blueprint(pageJsons.get(index));
+				blueprints[index] = ret;
+			}
+			return ret;
+		}
 
-		return blueprintString;
+		@Override
+		public int size() {
+			return blueprints.length;
+		}
 	}
 
 	public static JSONObject decode(String blueprintString) throws IOException {
-		blueprintString = cleanupBlueprintString(blueprintString);
-		byte[] decoded = Base64.decodeBase64(blueprintString.substring(1));
-		JSONObject json;
-		try (BufferedReader br = new BufferedReader(
-				new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(decoded)), Charsets.UTF_8))) {
-			StringBuilder jsonBuilder = new StringBuilder();
-			String line;
-			while ((line = br.readLine()) != null) {
-				jsonBuilder.append(line);
-			}
-			json = new JSONObject(jsonBuilder.toString());
-		}
-		return json;
+		return BlueprintStringReader.read(blueprintString, (blueprintJson, depth) -> {
+		});
 	}
 
 	public static String encode(JSONObject json) throws IOException {
-		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-				DeflaterOutputStream dos = new DeflaterOutputStream(baos)) {
-			dos.write(json.toString().getBytes());
-			dos.close();
-			return "0" + Base64.encodeBase64String(baos.toByteArray());
-		}
+		BlueprintCodecPool pool = BlueprintCodecPool.get();
+		json.write(pool.startText());
+		return pool.encodeText();
 	}
 
-	private final List<Blueprint> blueprints = new ArrayList<>();
+	// JSON of each page, indexed by the decoding scan
+	private final List<JSONObject> pageJsons = new ArrayList<>();
+	private final List<Blueprint> blueprints;
 
 	private final JSONObject json;
 
@@ -72,54 +65,37 @@ public class BlueprintStringData {
 			throw new IllegalArgumentException("Version is not valid! (" + versionChar + ")");
 		}
 
-		json = decode(blueprintString);
-
-		boolean first = true;
-		Optional<String> firstLabel = null;
-		MapVersion firstVersion = null;
-
-		Queue<JSONObject> work = new ArrayDeque<>();
-		work.add(json);
-		while (!work.isEmpty()) {
-			JSONObject json = work.poll();
-			if (json.has("blueprint")) {
-				Blueprint blueprint = new Blueprint(json);
-				blueprints.add(blueprint);
-
-				if (first) {
-					firstLabel = blueprint.getLabel();
-					firstVersion = blueprint.getVersion();
-					first = false;
-				}
-
-			} else if (json.has("blueprint_book")) {
-				JSONObject bookJson = json.getJSONObject("blueprint_book");
-				JSONArray blueprintsJson = bookJson.getJSONArray("blueprints");
-				for (int i = 0; i < blueprintsJson.length(); i++) {
-					work.add(blueprintsJson.getJSONObject(i));
-				}
-
-				if (first) {
-					if (bookJson.has("label")) {
-						firstLabel = Optional.of(bookJson.getString("label"));
-					} else {
-						firstLabel = Optional.empty();
-					}
-					if (bookJson.has("version")) {
-						firstVersion = new MapVersion(bookJson.getLong("version"));
-					} else {
-						firstVersion = new MapVersion();
-					}
-					first = false;
-				}
+		// Blueprints are read depth first, and listed breadth first
+		List<List<JSONObject>> levels = new ArrayList<>();
+		json = BlueprintStringReader.read(blueprintString, (blueprintJson, depth) -> {
+			while (levels.size() <= depth) {
+				levels.add(new ArrayList<>());
 			}
-		}
-		label = firstLabel;
-		version = firstVersion;
+			levels.get(depth).add(blueprintJson);
+		});
+		levels.forEach(pageJsons::addAll);
+		blueprints = new PageList();
 
 		if (blueprints.isEmpty()) {
 			throw new IllegalArgumentException("No blueprints found in blueprint string!");
 		}
+
+		if (json.has("blueprint")) {
+			label = blueprints.get(0).getLabel();
+			version = blueprints.get(0).getVersion();
+		} else {
+			JSONObject bookJson = json.getJSONObject("blueprint_book");
+			if (bookJson.has("label")) {
+				label = Optional.of(bookJson.getString("label"));
+			} else {
+				label = Optional.empty();
+			}
+			if (bookJson.has("version")) {
+				version = new MapVersion(bookJson.getLong("version"));
+			} else {
+				version = new MapVersion();
+			}
+		}
 	}
 
 	public List<Blueprint> getBlueprints() {
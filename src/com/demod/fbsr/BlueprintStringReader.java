@@ -0,0 +1,93 @@
+package com.demod.fbsr;
+
+import java.io.IOException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.demod.fbsr.JSONPullParser.Token;
+
+/**
+ * Streaming decoder of blueprint strings. The string is base64 decoded and
+ * inflated as a stream into a {@link JSONPullParser}, with the codec and
+ * buffers of the thread's {@link BlueprintCodecPool}, so the JSON text is never
+ * held in memory. The JSON tree is built from the tokens directly, and each
+ * blueprint is reported to the listener as it is read.
+ */
+public class BlueprintStringReader {
+	/**
+	 * Receives the object holding each blueprint once it is read, with its
+	 * depth in the book tree.
+	 */
+	public static interface Listener {
+		void endBlueprint(JSONObject json, int depth);
+	}
+
+	/**
+	 * Decodes the blueprint string (after its version character), reporting
+	 * its blueprints to the listener, and returns its JSON.
+	 */
+	public static JSONObject read(String blueprintString, Listener listener) throws IOException {
+		BlueprintCodecPool pool = BlueprintCodecPool.get();
+		try (JSONPullParser parser = new JSONPullParser(pool.decode(blueprintString, 1), pool.getParserBuffer())) {
+			if (parser.next() != Token.START_OBJECT) {
+				throw new JSONException("A JSONObject text must begin with '{'");
+			}
+			return readContainer(parser, listener, 0);
+		}
+	}
+
+	private static JSONObject readBook(JSONPullParser parser, Listener listener, int depth) throws IOException {
+		JSONObject ret = new JSONObject();
+		Token token;
+		for (token = parser.next(); token == Token.NAME; token = parser.next()) {
+			String name = parser.getText();
+			Token valueToken = parser.next();
+			if (name.equals("blueprints") && valueToken == Token.START_ARRAY) {
+				JSONArray array = new JSONArray();
+				for (valueToken = parser.next(); valueToken != Token.END_ARRAY; valueToken = parser.next()) {
+					if (valueToken == Token.START_OBJECT) {
+						array.put(readContainer(parser, listener, depth + 1));
+					} else {
+						array.put(parser.readValue(valueToken));
+					}
+				}
+				ret.put(name, array);
+			} else {
+				ret.put(name, parser.readValue(valueToken));
+			}
+		}
+		if (token != Token.END_OBJECT) {
+			throw new JSONException("Expected a key, found " + token);
+		}
+		return ret;
+	}
+
+	// The object holding a blueprint or a book, along with its index in a book
+	private static JSONObject readContainer(JSONPullParser parser, Listener listener, int depth)
+			throws IOException {
+		JSONObject ret = new JSONObject();
+		Token token;
+		for (token = parser.next(); token == Token.NAME; token = parser.next()) {
+			String name = parser.getText();
+			Token valueToken = parser.next();
+			if (name.equals("blueprint_book") && valueToken == Token.START_OBJECT) {
+				ret.put(name, readBook(parser, listener, depth));
+			} else {
+				ret.put(name, parser.readValue(valueToken));
+			}
+		}
+		if (token != Token.END_OBJECT) {
+			throw new JSONException("Expected a key, found " + token);
+		}
+
+		if (ret.has("blueprint")) {
+			listener.endBlueprint(ret, depth);
+		}
+		return ret;
+	}
+
+	private BlueprintStringReader() {
+	}
+}
@@ -0,0 +1,59 @@
+package com.demod.fbsr;
+
+import java.util.Arrays;
+
+/**
+ * {@link ChunkedGrid} of small bit fields, packed into the words of a long
+ * array per chunk. The field width must divide 64, cells that were never set
+ * read as 0.
+ */
+public class ChunkedBitGrid extends ChunkedGrid {
+	private final int bitsPerCell;
+	private final long cellMask;
+	private long[][] chunks = new long[8][];
+
+	public ChunkedBitGrid(int bitsPerCell) {
+		if (bitsPerCell <= 0 || bitsPerCell > 32 || 64 % bitsPerCell != 0) {
+			throw new IllegalArgumentException("Unsupported field width: " + bitsPerCell);
+		}
+		this.bitsPerCell = bitsPerCell;
+		cellMask = (1L << bitsPerCell) - 1;
+	}
+
+	/**
+	 * Clears the bits of the mask in the cell and sets the given bits, so that
+	 * one grid can hold several narrower layers side by side.
+	 */
+	public void clearAndSet(int x, int y, int mask, int bits) {
+		set(x, y, (get(x, y) & ~mask) | bits);
+	}
+
+	@Override
+	protected void createChunk(int chunk) {
+		if (chunk >= chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+		chunks[chunk] = new long[CHUNK_CELLS * bitsPerCell / 64];
+	}
+
+	public int get(int x, int y) {
+		int chunk = findChunk(x, y);
+		if (chunk == -1) {
+			return 0;
+		}
+		int bit = cellIndex(x, y) * bitsPerCell;
+		return (int) ((chunks[chunk][bit >>> 6] >>> (bit & 63)) & cellMask);
+	}
+
+	public int getBitsPerCell() {
+		return bitsPerCell;
+	}
+
+	public void set(int x, int y, int value) {
+		// The chunk array may grow while the chunk is created
+		int chunk = getOrCreateChunk(x, y);
+		int bit = cellIndex(x, y) * bitsPerCell;
+		long[] words = chunks[chunk];
+		words[bit >>> 6] = (words[bit >>> 6] & ~(cellMask << (bit & 63))) | ((value & cellMask) << (bit & 63));
+	}
+}
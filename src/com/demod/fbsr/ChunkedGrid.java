@@ -0,0 +1,104 @@
+package com.demod.fbsr;
+
+import java.util.Arrays;
+
+/**
+ * Sparse integer grid split into 32x32 chunks. Chunks are found through an
+ * open addressing map keyed by the packed chunk coordinates, so a lookup needs
+ * no boxing and touches one hash slot and one chunk array.
+ */
+public abstract class ChunkedGrid {
+	protected static final int CHUNK_BITS = 5;
+	protected static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	protected static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	protected static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+	protected static int cellIndex(int x, int y) {
+		return ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+	}
+
+	private static long chunkKey(int x, int y) {
+		return ((long) (x >> CHUNK_BITS) << 32) | ((y >> CHUNK_BITS) & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private long[] slotKeys = new long[16];
+	private int[] slotChunks = new int[16];
+	private int chunkCount = 0;
+
+	public ChunkedGrid() {
+		Arrays.fill(slotChunks, -1);
+	}
+
+	/**
+	 * Called when a chunk is first written to, chunks are numbered from 0 in
+	 * creation order.
+	 */
+	protected abstract void createChunk(int chunk);
+
+	/**
+	 * The chunk holding the cell, or -1 if nothing was ever written to it.
+	 */
+	protected int findChunk(int x, int y) {
+		long key = chunkKey(x, y);
+		int mask = slotKeys.length - 1;
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+			int chunk = slotChunks[slot];
+			if (chunk == -1 || slotKeys[slot] == key) {
+				return chunk;
+			}
+		}
+	}
+
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	protected int getOrCreateChunk(int x, int y) {
+		long key = chunkKey(x, y);
+		int mask = slotKeys.length - 1;
+		int slot = hash(key) & mask;
+		for (;; slot = (slot + 1) & mask) {
+			int chunk = slotChunks[slot];
+			if (chunk == -1) {
+				break;
+			} else if (slotKeys[slot] == key) {
+				return chunk;
+			}
+		}
+
+		int chunk = chunkCount++;
+		slotKeys[slot] = key;
+		slotChunks[slot] = chunk;
+		createChunk(chunk);
+		if (chunkCount * 2 > slotKeys.length) {
+			rehash(slotKeys.length * 2);
+		}
+		return chunk;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = slotKeys;
+		int[] oldChunks = slotChunks;
+		slotKeys = new long[capacity];
+		slotChunks = new int[capacity];
+		Arrays.fill(slotChunks, -1);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldChunks[i] != -1) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (slotChunks[slot] != -1) {
+					slot = (slot + 1) & mask;
+				}
+				slotKeys[slot] = oldKeys[i];
+				slotChunks[slot] = oldChunks[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.demod.fbsr;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * {@link ChunkedGrid} of objects, cells that were never set read as null.
+ */
+public class ChunkedObjectGrid<T> extends ChunkedGrid {
+	private Object[][] chunks = new Object[8][];
+
+	@Override
+	protected void createChunk(int chunk) {
+		if (chunk >= chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+		chunks[chunk] = new Object[CHUNK_CELLS];
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int x, int y) {
+		int chunk = findChunk(x, y);
+		return chunk == -1 ? null : (T) chunks[chunk][cellIndex(x, y)];
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getOrCreate(int x, int y, Supplier<T> factory) {
+		int chunkIndex = getOrCreateChunk(x, y);
+		Object[] chunk = chunks[chunkIndex];
+		int index = cellIndex(x, y);
+		Object ret = chunk[index];
+		if (ret == null) {
+			chunk[index] = ret = factory.get();
+		}
+		return (T) ret;
+	}
+
+	public void set(int x, int y, T value) {
+		// The chunk array may grow while the chunk is created
+		int chunk = getOrCreateChunk(x, y);
+		chunks[chunk][cellIndex(x, y)] = value;
+	}
+}
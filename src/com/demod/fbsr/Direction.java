@@ -95,6 +95,22 @@ public enum Direction {
 		return new Rectangle2D.Double(rect.x + distance * dx, rect.y + distance * dy, rect.width, rect.height);
 	}
 
+	public int offsetX(int x) {
+		return x + dx;
+	}
+
+	public int offsetX(int x, int distance) {
+		return x + distance * dx;
+	}
+
+	public int offsetY(int y) {
+		return y + dy;
+	}
+
+	public int offsetY(int y, int distance) {
+		return y + distance * dy;
+	}
+
 	public Direction right() {
 		return rotate(2);
 	}
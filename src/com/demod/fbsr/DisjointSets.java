@@ -0,0 +1,42 @@
+package com.demod.fbsr;
+
+/**
+ * Union-find over the elements 0..size-1, used to split the world into
+ * connected components.
+ */
+public class DisjointSets {
+	private final int[] parents;
+	private final int[] sizes;
+
+	public DisjointSets(int size) {
+		parents = new int[size];
+		sizes = new int[size];
+		for (int i = 0; i < size; i++) {
+			parents[i] = i;
+			sizes[i] = 1;
+		}
+	}
+
+	public int find(int element) {
+		while (parents[element] != element) {
+			parents[element] = parents[parents[element]];
+			element = parents[element];
+		}
+		return element;
+	}
+
+	public void union(int element1, int element2) {
+		int root1 = find(element1);
+		int root2 = find(element2);
+		if (root1 == root2) {
+			return;
+		}
+		if (sizes[root1] < sizes[root2]) {
+			int swap = root1;
+			root1 = root2;
+			root2 = swap;
+		}
+		parents[root2] = root1;
+		sizes[root1] += sizes[root2];
+	}
+}
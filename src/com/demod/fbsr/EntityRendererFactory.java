@@ -8,10 +8,9 @@ import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.util.AbstractMap.SimpleEntry;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,8 +20,6 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.luaj.vm2.LuaValue;
 
 import com.demod.factorio.DataTable;
@@ -117,10 +114,10 @@ public class EntityRendererFactory {
 					g.drawString("?", (float) bounds.getCenterX() - 0.25f, (float) bounds.getCenterY() + 0.3f);
 				}
 			});
-			register.accept(new Renderer(Layer.OVERLAY4, bounds) {
-				@Override
-				public void render(Graphics2D g) {
-					if (labeledTypes.add(entity.getName())) {
+			if (labeledTypes.add(entity.getName())) {
+				register.accept(new Renderer(Layer.OVERLAY4, bounds) {
+					@Override
+					public void render(Graphics2D g) {
 						g.setFont(new Font("Monospaced", Font.BOLD, 1).deriveFont(0.4f));
 						float textX = (float) bounds.x;
 						float textY = (float) (bounds.y
@@ -130,17 +127,16 @@ public class EntityRendererFactory {
 						g.setColor(Color.white);
 						g.drawString(entity.getName(), textX, textY);
 					}
-				}
-			});
+				});
+			}
 		}
 
 		@Override
-		public void createWireConnections(Consumer<Renderer> register, WorldMap map, DataTable table,
-				BlueprintEntity entity) {
+		public void populateLogistics(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
 		}
 
 		@Override
-		public void populateLogistics(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
+		public void populateWires(WorldMap map, DataTable table, BlueprintEntity entity) {
 		}
 
 		@Override
@@ -330,15 +326,12 @@ public class EntityRendererFactory {
 			Rectangle2D.Double beaconedBounds = protoSelectionBox.createRect();
 			beaconedBounds.x += pos.x;
 			beaconedBounds.y += pos.y;
-			Set<BlueprintEntity> beacons = new LinkedHashSet<>();
-			map.getBeaconed(new Point2D.Double(beaconedBounds.x + 0.5, beaconedBounds.y + 0.5))
-					.ifPresent(beacons::addAll);
-			map.getBeaconed(new Point2D.Double(beaconedBounds.x + 0.5, beaconedBounds.y + beaconedBounds.height - 0.5))
-					.ifPresent(beacons::addAll);
-			map.getBeaconed(new Point2D.Double(beaconedBounds.x + beaconedBounds.width - 0.5,
-					beaconedBounds.y + beaconedBounds.height - 0.5)).ifPresent(beacons::addAll);
-			map.getBeaconed(new Point2D.Double(beaconedBounds.x + beaconedBounds.width - 0.5, beaconedBounds.y + 0.5))
-					.ifPresent(beacons::addAll);
+			List<BlueprintEntity> beacons = map.getBeacons(
+					new Point2D.Double(beaconedBounds.x + 0.5, beaconedBounds.y + 0.5),
+					new Point2D.Double(beaconedBounds.x + 0.5, beaconedBounds.y + beaconedBounds.height - 0.5),
+					new Point2D.Double(beaconedBounds.x + beaconedBounds.width - 0.5,
+							beaconedBounds.y + beaconedBounds.height - 0.5),
+					new Point2D.Double(beaconedBounds.x + beaconedBounds.width - 0.5, beaconedBounds.y + 0.5));
 
 			if (!beacons.isEmpty()) {
 				Map<String, Double> beaconModules = new LinkedHashMap<>();
@@ -409,66 +402,6 @@ public class EntityRendererFactory {
 		}
 	}
 
-	public void createWireConnections(Consumer<Renderer> register, WorldMap map, DataTable table,
-			BlueprintEntity entity) {
-		int entityId = entity.getId();
-
-		JSONObject connectionsJson = entity.json().optJSONObject("connections");
-		if (connectionsJson != null) {
-			Utils.forEach(connectionsJson, (String circuitIdStr, Object connection) -> {
-				if (connection instanceof JSONObject) {
-					JSONObject connectionJson = (JSONObject) connection;
-					int circuitId = Integer.parseInt(circuitIdStr);
-					Utils.forEach(connectionJson, (String colorName, JSONArray wiresJson) -> {
-						Utils.forEach(wiresJson, (JSONObject wireJson) -> {
-							int targetCircuitId = wireJson.optInt("circuit_id", 1);
-							int targetEntityId = wireJson.getInt("entity_id");
-
-							String key;
-							if (entityId == targetEntityId) {
-								key = entityId + "|" + colorName;
-							} else if (entityId < targetEntityId) {
-								key = entityId + "|" + circuitId + "|" + targetEntityId + "|" + targetCircuitId + "|"
-										+ colorName;
-							} else {
-								key = targetEntityId + "|" + targetCircuitId + "|" + entityId + "|" + circuitId + "|"
-										+ colorName;
-							}
-
-							if (!map.hasWire(key)) {
-								map.setWire(key, new SimpleEntry<>(getWirePositionFor(entity, colorName, circuitId),
-										new Point2D.Double()));
-
-							} else {
-								Entry<Point2D.Double, Point2D.Double> pair = map.getWire(key);
-
-								Point2D.Double p1 = pair.getKey();
-								Point2D.Double p2 = pair.getValue();
-								p2.setLocation(getWirePositionFor(entity, colorName, circuitId));
-
-								Color color;
-								switch (colorName) {
-								case "red":
-									color = Color.red.darker();
-									break;
-								case "green":
-									color = Color.green.darker();
-									break;
-								default:
-									System.err.println("UNKNOWN COLOR NAME: " + colorName);
-									color = Color.magenta;
-									break;
-								}
-
-								register.accept(RenderUtils.createWireRenderer(p1, p2, color));
-							}
-						});
-					});
-				}
-			});
-		}
-	}
-
 	protected void debugPrintContext(BlueprintEntity entity, EntityPrototype prototype) {
 		System.out.println("=================================================================");
 		System.out.println("=========================== PROTOTYPE ===========================");
@@ -539,6 +472,53 @@ public class EntityRendererFactory {
 		// default do nothing
 	}
 
+	/**
+	 * Adds the circuit wires of the entity to {@link WorldMap#getWires()}, they
+	 * are rendered once both ends are known. Connections out of the range of
+	 * {@link WireMap#key} are skipped, and thrown once the others are added.
+	 */
+	public void populateWires(WorldMap map, DataTable table, BlueprintEntity entity) {
+		int entityId = entity.getId();
+
+		int[] connections = entity.getConnections();
+		if (connections != null) {
+			WireMap wires = map.getWires();
+			IllegalArgumentException outOfRange = null;
+			for (int i = 0; i < connections.length; i += 4) {
+				int circuitId = connections[i];
+				String colorName = entity.getTable().getInternedName(connections[i + 1]);
+				int targetEntityId = connections[i + 2];
+				int targetCircuitId = connections[i + 3];
+
+				int color = WireMap.colorCode(colorName);
+				long key;
+				try {
+					key = WireMap.key(entityId, circuitId, targetEntityId, targetCircuitId, color);
+				} catch (IllegalArgumentException e) {
+					if (outOfRange == null) {
+						outOfRange = e;
+					} else {
+						outOfRange.addSuppressed(e);
+					}
+					continue;
+				}
+
+				int wire = wires.find(key);
+				if (wire == -1) {
+					wires.add(key, getWirePositionFor(entity, colorName, circuitId), color);
+				} else {
+					wires.setEnd(wire, getWirePositionFor(entity, colorName, circuitId));
+					if (color == WireMap.COLOR_OTHER) {
+						System.err.println("UNKNOWN COLOR NAME: " + colorName);
+					}
+				}
+			}
+			if (outOfRange != null) {
+				throw outOfRange;
+			}
+		}
+	}
+
 	public void populateWorldMap(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
 		// default do nothing
 	}
@@ -558,10 +538,10 @@ public class EntityRendererFactory {
 		double xEnd = xStart + box.width;
 		double yEnd = yStart + box.height;
 
-		Set<String> inputs = recipe.getInputs().keySet().stream().filter(k -> dataTable.getItem(k).isPresent())
-				.collect(Collectors.toSet());
-		Set<String> outputs = recipe.getOutputs().keySet().stream().filter(k -> dataTable.getItem(k).isPresent())
-				.collect(Collectors.toSet());
+		BitSet inputs = map.getItemRegistry().toBitSet(recipe.getInputs().keySet().stream()
+				.filter(k -> dataTable.getItem(k).isPresent()).collect(Collectors.toList()));
+		BitSet outputs = map.getItemRegistry().toBitSet(recipe.getOutputs().keySet().stream()
+				.filter(k -> dataTable.getItem(k).isPresent()).collect(Collectors.toList()));
 
 		Point2D.Double cellPos = new Point2D.Double();
 		for (cellPos.x = xStart + 0.25; cellPos.x < xEnd; cellPos.x += 0.5) {
@@ -0,0 +1,266 @@
+package com.demod.fbsr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.demod.factorio.Utils;
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * Columnar copy of the entities of a blueprint, one row per entity. Names are
+ * interned as int IDs of the table, and positions and directions are kept in
+ * primitive arrays. The fields only some entities have are kept in side
+ * tables: the recipe and the input or output type as nullable columns, and the
+ * items and circuit connections in maps by row. Renderers read these instead
+ * of the JSON, which is kept for commands that edit and encode it. A side
+ * table entry that fails to parse is left empty, and its error kept for the
+ * render to report.
+ */
+public class EntityTable {
+	public static final int TYPE_NONE = 0;
+	public static final int TYPE_INPUT = 1;
+	public static final int TYPE_OUTPUT = 2;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	// TODO new format temporary renaming to old 1.0 names
+	private static String legacyName(String name) {
+		switch (name) {
+		case "legacy-curved-rail":
+			return "curved-rail";
+		case "legacy-straight-rail":
+			return "straight-rail";
+		case "active-provider-chest":
+			return "logistic-chest-active-provider";
+		case "passive-provider-chest":
+			return "logistic-chest-passive-provider";
+		case "storage-chest":
+			return "logistic-chest-storage";
+		case "buffer-chest":
+			return "logistic-chest-buffer";
+		case "requester-chest":
+			return "logistic-chest-requester";
+		case "bulk-inserter":
+			return "stack-inserter";
+		default:
+			return name;
+		}
+	}
+
+	private final MapVersion version;
+	private final boolean jsonNewFormat;
+	// Entity and wire color names, scoped to the blueprint
+	private final NameInterner names = new NameInterner();
+
+	private final JSONObject[] jsons;
+	private final int[] ids;
+	private final int[] nameIdColumn;
+	private final double[] xs;
+	private final double[] ys;
+	private final byte[] directions;
+
+	private final String[] recipes;
+	private final byte[] types;
+	private final Map<Integer, Multiset<String>> items = new HashMap<>();
+	// Wires as (circuit ID, color name ID, target entity ID, target circuit ID)
+	private final Map<Integer, int[]> connections = new HashMap<>();
+	private final Map<Integer, Exception> loadErrors = new HashMap<>();
+
+	public EntityTable(List<JSONObject> entityJsons, MapVersion version) {
+		this.version = version;
+		jsonNewFormat = version.greaterOrEquals(Blueprint.VERSION_NEW_FORMAT);
+
+		int count = entityJsons.size();
+		jsons = entityJsons.toArray(new JSONObject[count]);
+		ids = new int[count];
+		nameIdColumn = new int[count];
+		xs = new double[count];
+		ys = new double[count];
+		directions = new byte[count];
+		recipes = new String[count];
+		types = new byte[count];
+		for (int row = 0; row < count; row++) {
+			load(row);
+		}
+	}
+
+	/**
+	 * Circuit wires of the entity, four ints each: the circuit ID, the interned
+	 * color name, the target entity ID and the target circuit ID. Null if the
+	 * entity has no connections.
+	 */
+	public int[] getConnections(int row) {
+		return connections.get(row);
+	}
+
+	public Direction getDirection(int row) {
+		return DIRECTIONS[directions[row]];
+	}
+
+	public int getId(int row) {
+		return ids[row];
+	}
+
+	/**
+	 * The error of parsing the items or connections of the entity, null if
+	 * there was none.
+	 */
+	public Exception getLoadError(int row) {
+		return loadErrors.get(row);
+	}
+
+	/**
+	 * Items requested into the entity (modules for most), null if it has none.
+	 * Not read from the new format.
+	 */
+	public Multiset<String> getItems(int row) {
+		return items.get(row);
+	}
+
+	/**
+	 * The name with the ID interned by this table.
+	 */
+	public String getInternedName(int nameId) {
+		return names.getName(nameId);
+	}
+
+	public String getName(int row) {
+		return names.getName(nameIdColumn[row]);
+	}
+
+	public int getNameId(int row) {
+		return nameIdColumn[row];
+	}
+
+	/**
+	 * The recipe of the entity, or null if it has none.
+	 */
+	public String getRecipe(int row) {
+		return recipes[row];
+	}
+
+	public int getSize() {
+		return ids.length;
+	}
+
+	/**
+	 * The input or output type of undergrounds and loaders, or
+	 * {@link #TYPE_NONE}.
+	 */
+	public int getType(int row) {
+		return types[row];
+	}
+
+	public double getX(int row) {
+		return xs[row];
+	}
+
+	public double getY(int row) {
+		return ys[row];
+	}
+
+	public boolean isJsonNewFormat() {
+		return jsonNewFormat;
+	}
+
+	public JSONObject json(int row) {
+		return jsons[row];
+	}
+
+	/**
+	 * Reads the row again from the JSON of its entity, after it was edited. An
+	 * error in the items or connections is kept as the load error of the row
+	 * rather than thrown.
+	 */
+	public void load(int row) {
+		JSONObject json = jsons[row];
+		ids[row] = json.getInt("entity_number");
+		nameIdColumn[row] = names.intern(legacyName(json.getString("name")));
+		JSONObject positionJson = json.getJSONObject("position");
+		xs[row] = positionJson.getDouble("x");
+		ys[row] = positionJson.getDouble("y");
+		directions[row] = (byte) Direction.fromEntityJSON(json, version).ordinal();
+
+		recipes[row] = json.optString("recipe", null);
+		String type = json.optString("type", null);
+		if ("input".equals(type)) {
+			types[row] = TYPE_INPUT;
+		} else if ("output".equals(type)) {
+			types[row] = TYPE_OUTPUT;
+		} else {
+			types[row] = TYPE_NONE;
+		}
+
+		items.remove(row);
+		connections.remove(row);
+		loadErrors.remove(row);
+		try {
+			loadItems(row, json);
+		} catch (Exception e) {
+			loadErrors.put(row, e);
+		}
+		try {
+			loadConnections(row, json);
+		} catch (Exception e) {
+			loadErrors.putIfAbsent(row, e);
+		}
+	}
+
+	private void loadConnections(int row, JSONObject json) {
+		JSONObject connectionsJson = json.optJSONObject("connections");
+		if (connectionsJson != null && connectionsJson.length() > 0) {
+			int[][] wires = { new int[16] };
+			int[] count = { 0 };
+			Utils.forEach(connectionsJson, (String circuitIdStr, Object connection) -> {
+				if (connection instanceof JSONObject) {
+					int circuitId = Integer.parseInt(circuitIdStr);
+					Utils.forEach((JSONObject) connection, (String colorName, JSONArray wiresJson) -> {
+						int colorId = names.intern(colorName);
+						Utils.forEach(wiresJson, (JSONObject wireJson) -> {
+							if (count[0] + 4 > wires[0].length) {
+								wires[0] = Arrays.copyOf(wires[0], wires[0].length * 2);
+							}
+							int[] w = wires[0];
+							w[count[0]++] = circuitId;
+							w[count[0]++] = colorId;
+							w[count[0]++] = wireJson.getInt("entity_id");
+							w[count[0]++] = wireJson.optInt("circuit_id", 1);
+						});
+					});
+				}
+			});
+			connections.put(row, Arrays.copyOf(wires[0], count[0]));
+		}
+	}
+
+	private void loadItems(int row, JSONObject json) {
+		Object itemsJson = json.opt("items");
+		if (!jsonNewFormat && itemsJson instanceof JSONObject) {
+			Multiset<String> rowItems = LinkedHashMultiset.create();
+			Utils.forEach((JSONObject) itemsJson, (String itemName, Integer count) -> {
+				rowItems.add(itemName, count);
+			});
+			items.put(row, rowItems);
+		} else if (!jsonNewFormat && itemsJson instanceof JSONArray) {
+			Multiset<String> rowItems = LinkedHashMultiset.create();
+			Utils.<JSONObject>forEach((JSONArray) itemsJson, j -> {
+				rowItems.add(j.getString("item"), j.getInt("count"));
+			});
+			items.put(row, rowItems);
+		}
+	}
+
+	/**
+	 * Moves the entity, without changing its JSON.
+	 */
+	public void setPosition(int row, double x, double y) {
+		xs[row] = x;
+		ys[row] = y;
+	}
+}
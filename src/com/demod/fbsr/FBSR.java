@@ -1,9 +1,12 @@
 package com.demod.fbsr;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Composite;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
@@ -12,25 +15,45 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.CubicCurve2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
 
@@ -39,6 +62,7 @@ import org.json.JSONObject;
 
 import com.demod.dcba.CommandReporting;
 import com.demod.dcba.CommandReporting.Level;
+import com.demod.factorio.Config;
 import com.demod.factorio.DataTable;
 import com.demod.factorio.FactorioData;
 import com.demod.factorio.ModInfo;
@@ -55,21 +79,253 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.LinkedHashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Table;
+import com.google.common.collect.Table.Cell;
 
 public class FBSR {
 
+	/**
+	 * Receives the pages of a book from {@link FBSR#renderBook}.
+	 */
+	@FunctionalInterface
+	public static interface BookPageConsumer {
+		/**
+		 * Called in page order with each page that rendered. The image is only
+		 * valid during the call, as its render budget is released afterwards.
+		 */
+		void accept(int index, BufferedImage image) throws IOException;
+	}
+
 	private static class EntityRenderingTuple {
 		BlueprintEntity entity;
 		EntityRendererFactory factory;
+		// Kept between incremental updates, null until they are created
+		List<Renderer> renderers;
+		List<Renderer> moduleIcons;
+	}
+
+	/**
+	 * The graphics state renderers start from. Renderers do not all set every
+	 * attribute they draw with, so it is restored before each one, and the
+	 * serial and band paths draw the same whatever the previous renderer left.
+	 * Only attributes a renderer changed are set again, as every set attribute
+	 * drops the pipeline the graphics has validated for drawing.
+	 */
+	private static class GraphicsState {
+		final Color color;
+		final Paint paint;
+		final Stroke stroke;
+		final Font font;
+		final Composite composite;
+		final RenderingHints hints;
+		final AffineTransform transform;
+
+		GraphicsState(Graphics2D g) {
+			color = g.getColor();
+			paint = g.getPaint();
+			stroke = g.getStroke();
+			font = g.getFont();
+			composite = g.getComposite();
+			hints = (RenderingHints) g.getRenderingHints().clone();
+			transform = g.getTransform();
+		}
+
+		void restore(Graphics2D g) {
+			if (!g.getTransform().equals(transform)) {
+				g.setTransform(transform);
+			}
+			for (Entry<Object, Object> entry : hints.entrySet()) {
+				RenderingHints.Key key = (RenderingHints.Key) entry.getKey();
+				if (!entry.getValue().equals(g.getRenderingHint(key))) {
+					g.setRenderingHint(key, entry.getValue());
+				}
+			}
+			if (g.getComposite() != composite) {
+				g.setComposite(composite);
+			}
+			if (g.getFont() != font) {
+				g.setFont(font);
+			}
+			if (g.getStroke() != stroke) {
+				g.setStroke(stroke);
+			}
+			// Color first, as setting it also sets the paint
+			if (g.getColor() != color) {
+				g.setColor(color);
+			}
+			if (g.getPaint() != paint) {
+				g.setPaint(paint);
+			}
+		}
+	}
+
+	/**
+	 * A rendered blueprint that keeps its world and image, so that edits to its
+	 * entities only rebuild and redraw the parts of the world they affect. Not
+	 * thread safe.
+	 */
+	public static class IncrementalRendering implements AutoCloseable {
+		private Blueprint blueprint;
+		private JSONObject options;
+		// The world the rendering was built from, and the renderers of each
+		// entity and tile, reused where no edit reaches
+		private WorldMap map;
+		private List<EntityRenderingTuple> entityRenderingTuples;
+		private List<TileRenderingTuple> tileRenderingTuples;
+		private WorldRendering rendering;
+		private RenderLayout layout;
+		private ReservedImage image;
+		private Level level;
+		// Edits of failed updates, applied again by the next one
+		private final Set<BlueprintEntity> pendingEdits = Collections.newSetFromMap(new IdentityHashMap<>());
+		// Left set if a redraw in place failed part way, as the image then
+		// matches no rendering and is drawn whole by the next update
+		private boolean imageStale = false;
+
+		/**
+		 * Releases the render budget held by the image.
+		 */
+		@Override
+		public void close() {
+			image.close();
+		}
+
+		public BufferedImage getImage() {
+			return image.getImage();
+		}
+
+		public WorldRendering getRendering() {
+			return rendering;
+		}
+	}
+
+	private static class RenderLayout {
+		Rectangle2D.Double worldBounds;
+		Rectangle2D.Double centerBounds;
+		Rectangle2D.Double totalBounds;
+		float worldRenderScale;
+		int imageWidth;
+		int imageHeight;
+
+		boolean matches(RenderLayout other) {
+			return worldBounds.equals(other.worldBounds) && centerBounds.equals(other.centerBounds)
+					&& totalBounds.equals(other.totalBounds) && worldRenderScale == other.worldRenderScale
+					&& imageWidth == other.imageWidth && imageHeight == other.imageHeight;
+		}
+
+		Rectangle toPixels(Rectangle2D.Double world, double margin) {
+			double scaleX = imageWidth / totalBounds.getWidth();
+			double scaleY = imageHeight / totalBounds.getHeight();
+			int minX = (int) Math.floor((world.getMinX() - margin - totalBounds.getMinX()) * scaleX);
+			int minY = (int) Math.floor((world.getMinY() - margin - totalBounds.getMinY()) * scaleY);
+			int maxX = (int) Math.ceil((world.getMaxX() + margin - totalBounds.getMinX()) * scaleX);
+			int maxY = (int) Math.ceil((world.getMaxY() + margin - totalBounds.getMinY()) * scaleY);
+			return new Rectangle(minX, minY, maxX - minX, maxY - minY)
+					.intersection(new Rectangle(0, 0, imageWidth, imageHeight));
+		}
+
+		Rectangle2D.Double toWorldBounds(Rectangle pixels, double margin) {
+			double scaleX = totalBounds.getWidth() / imageWidth;
+			double scaleY = totalBounds.getHeight() / imageHeight;
+			return new Rectangle2D.Double(totalBounds.getMinX() + pixels.x * scaleX - margin,
+					totalBounds.getMinY() + pixels.y * scaleY - margin, pixels.width * scaleX + margin * 2,
+					pixels.height * scaleY + margin * 2);
+		}
+	}
+
+	/**
+	 * A rendered image and its reservation of the render budget. The budget
+	 * covers the image until it is closed, so close it once the image has been
+	 * written out.
+	 */
+	public static class ReservedImage implements AutoCloseable {
+		private final BufferedImage image;
+		private final RenderScheduler.Reservation reservation;
+
+		private ReservedImage(BufferedImage image, RenderScheduler.Reservation reservation) {
+			this.image = image;
+			this.reservation = reservation;
+		}
+
+		@Override
+		public void close() {
+			if (reservation != null) {
+				reservation.close();
+			}
+		}
+
+		public BufferedImage getImage() {
+			return image;
+		}
 	}
 
 	private static class TileRenderingTuple {
 		BlueprintTile tile;
 		TileRendererFactory factory;
+		List<Renderer> renderers;
+	}
+
+	/**
+	 * The renderers of a blueprint, indexed so that any part of the world can be
+	 * rendered without visiting the whole blueprint.
+	 */
+	public static class WorldRendering {
+		private List<Renderer> renderers;
+		private ArrayListMultimap<Direction, PanelRenderer> borderPanels;
+		private Rectangle2D.Double bounds;
+		private RendererIndex index;
+		// Draw order as indices into renderers, and the inverse
+		private int[] order;
+		private int[] rank;
+
+		// Items listed by the info panels, null without them
+		private Map<String, Double> totalItems;
+
+		public Rectangle2D.Double getBounds() {
+			return bounds;
+		}
+
+		public RendererIndex getIndex() {
+			return index;
+		}
+
+		public List<Renderer> getRenderers() {
+			return renderers;
+		}
 	}
 
 	private static final int MAX_WORLD_RENDER_PIXELS = 10000 * 10000;
 
+	// Renderers read the world map at most this many tiles from their entity
+	// (module icons of entities in range of a beacon being the furthest), so
+	// edits recreate the renderers of everything this close
+	private static final double EDIT_INFLUENCE_MARGIN = 8;
+
+	private static final int REDRAW_BLOCK_SIZE = 256;
+
+	// Sprites are drawn outside of their renderer bounds (tall entities, wire
+	// sag, labels), so bands and strips also pick up renderers this many tiles
+	// away
+	private static final double RENDERER_OVERDRAW_MARGIN = 8;
+
+	private static final int TILED_STRIP_HEIGHT = 256;
+
+	private static final int SHADOW_STRIP_HEIGHT = 256;
+
+	// Packed draw order key: layer ordinal above two dense ranks (minY, minX)
+	private static final int SORT_KEY_RANK_BITS = 29;
+	private static final int SORT_KEY_LAYER_SHIFT = SORT_KEY_RANK_BITS * 2;
+
+	private static final int RADIX_BITS = 16;
+	private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+	// Small components are batched into analysis tasks of at least this many
+	// logistic cells or rail nodes
+	private static final int ANALYSIS_BATCH_SIZE = 4096;
+
+	// Wires are drawn in batches by the tile block their first end is in
+	private static final int WIRE_BATCH_TILES = 16;
+	private static final Color[] WIRE_COLORS = { Color.red.darker(), Color.green.darker(), Color.magenta };
+
 	private static final Color GROUND_COLOR = new Color(40, 40, 40);
 	private static final Color GRID_COLOR = new Color(60, 60, 60);
 
@@ -77,9 +333,14 @@ public class FBSR {
 
 	private static volatile String version = null;
 
-	private static final Map<String, Color> itemColorCache = new HashMap<>();
+	private static final Map<String, Color> itemColorCache = new ConcurrentHashMap<>();
 
 	private static BufferedImage timeIcon = null;
+
+	private static volatile RenderCache renderCache = null;
+	private static volatile RenderScheduler renderScheduler = null;
+	private static volatile ExecutorService bookRenderExecutor = null;
+	private static volatile int bookRenderThreads = 1;
 	static {
 		try {
 			timeIcon = ImageIO.read(FBSR.class.getClassLoader().getResourceAsStream("Time_icon.png"));
@@ -92,6 +353,63 @@ public class FBSR {
 
 	private static volatile boolean initialized = false;
 
+	/**
+	 * Adds the bounds of the rail edges that differ between the maps, matched by
+	 * their place in the edge lists, as the rail overlays are drawn from them.
+	 */
+	private static void addChangedRailBounds(WorldMap previousMap, WorldMap map,
+			List<Rectangle2D.Double> dirtyBounds) {
+		List<Entry<RailEdge, RailEdge>> previousEdges = previousMap.getRailEdges();
+		List<Entry<RailEdge, RailEdge>> edges = map.getRailEdges();
+		for (int i = 0; i < Math.max(previousEdges.size(), edges.size()); i++) {
+			if (i < previousEdges.size() && i < edges.size()
+					&& isSameRailEdge(previousEdges.get(i).getKey(), edges.get(i).getKey())
+					&& isSameRailEdge(previousEdges.get(i).getValue(), edges.get(i).getValue())) {
+				continue;
+			}
+			for (List<Entry<RailEdge, RailEdge>> list : ImmutableList.of(previousEdges, edges)) {
+				if (i < list.size()) {
+					RailEdge edge = list.get(i).getKey();
+					dirtyBounds.add(lineBounds(edge.getStartPos().x, edge.getStartPos().y, edge.getEndPos().x,
+							edge.getEndPos().y));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the bounds of the paired wires that differ between the wire maps,
+	 * matched by number.
+	 */
+	private static void addChangedWireBounds(WireMap previousWires, WireMap wires,
+			List<Rectangle2D.Double> dirtyBounds) {
+		for (int wire = 0; wire < Math.max(previousWires.getCount(), wires.getCount()); wire++) {
+			if (wire < previousWires.getCount() && wire < wires.getCount() && isSameWire(previousWires, wires, wire)) {
+				continue;
+			}
+			for (WireMap map : ImmutableList.of(previousWires, wires)) {
+				if (wire < map.getCount() && map.isPaired(wire)) {
+					dirtyBounds.add(lineBounds(map.getStartX(wire), map.getStartY(wire), map.getEndX(wire),
+							map.getEndY(wire)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Book pages render concurrently against the same reporting, so it is only
+	 * used while holding its monitor.
+	 */
+	private static void addException(CommandReporting reporting, Exception e) {
+		synchronized (reporting) {
+			reporting.addException(e);
+		}
+	}
+
+	private static void addRendererBounds(List<Rectangle2D.Double> dirtyBounds, List<Renderer> renderers) {
+		renderers.forEach(r -> dirtyBounds.add(r.bounds));
+	}
+
 	private static void addToItemAmount(Map<String, Double> items, String itemName, double add) {
 		double amount = items.getOrDefault(itemName, 0.0);
 		amount += add;
@@ -151,6 +469,7 @@ public class FBSR {
 				if (shiftY) {
 					position.y += 0.5;
 				}
+				tuple.entity.setPosition(position.x, position.y);
 			}
 		}
 
@@ -172,13 +491,210 @@ public class FBSR {
 		}
 	}
 
-	private static BufferedImage applyRendering(CommandReporting reporting, int tileSize, List<Renderer> renderers,
-			ArrayListMultimap<Direction, PanelRenderer> borderPanels, JSONObject options) throws JSONException {
+	private static ReservedImage applyRendering(CommandReporting reporting, int tileSize, WorldRendering rendering,
+			JSONObject options) throws JSONException, IOException {
+
+		RenderLayout layout = computeLayout(tileSize, rendering.bounds, rendering.borderPanels, options, true);
+		System.out.println("\t" + layout.imageWidth + "x" + layout.imageHeight + " (" + layout.worldRenderScale + ")");
+
+		return drawImage(reporting, layout, rendering, options);
+	}
+
+	private static void applyTiledRendering(CommandReporting reporting, int tileSize, WorldRendering rendering,
+			JSONObject options, long maxPixels, OutputStream out) throws JSONException, IOException {
+
+		RenderLayout layout = computeLayout(tileSize, rendering.bounds, rendering.borderPanels, options, false);
+		System.out.println("\t" + layout.imageWidth + "x" + layout.imageHeight + " (" + layout.worldRenderScale
+				+ ", tiled)");
+		if ((long) layout.imageWidth * layout.imageHeight > maxPixels) {
+			throw new IOException("Full resolution render of " + layout.imageWidth + "x" + layout.imageHeight
+					+ " exceeds the limit of " + maxPixels + " pixels");
+		}
+
+		Set<Renderer> failedRenderers = new HashSet<>();
+
+		int stripHeight = Math.min(TILED_STRIP_HEIGHT, layout.imageHeight);
+		try (RenderScheduler.Reservation reservation = reserveRender(layout, stripHeight, options);
+				PNGStreamWriter png = new PNGStreamWriter(out, layout.imageWidth, layout.imageHeight)) {
+			BufferedImage strip = new BufferedImage(layout.imageWidth, stripHeight, BufferedImage.TYPE_INT_RGB);
+			for (int stripY = 0; stripY < layout.imageHeight; stripY += strip.getHeight()) {
+				int rows = Math.min(strip.getHeight(), layout.imageHeight - stripY);
+
+				Graphics2D g = strip.createGraphics();
+				g.translate(0, -stripY);
+				g.clipRect(0, stripY, layout.imageWidth, rows);
+				drawRegion(reporting, g, new Rectangle(0, stripY, layout.imageWidth, rows), layout, rendering,
+						rendering.borderPanels, options, failedRenderers);
+				g.dispose();
+
+				png.writeRows(strip, 0, rows);
+			}
+		}
+	}
+
+	/**
+	 * Builds the renderers of the tuples from their populated world map, once
+	 * the logistics of each batch of its logistic grid are analyzed. Only the
+	 * tuples without renderers get new ones.
+	 */
+	private static WorldRendering buildWorldRendering(Blueprint blueprint, CommandReporting reporting,
+			JSONObject options, WorldMap map, List<EntityRenderingTuple> entityRenderingTuples,
+			List<TileRenderingTuple> tileRenderingTuples,
+			List<List<Cell<Integer, Integer, LogisticGridCell>>> logisticBatches) {
+		DataTable table = FactorioData.getTable();
+
+		// Disconnected belt and rail networks do not affect each other
+		List<ForkJoinTask<?>> analysisTasks = new ArrayList<>();
+		for (List<Cell<Integer, Integer, LogisticGridCell>> cells : logisticBatches) {
+			analysisTasks.add(ForkJoinPool.commonPool().submit(() -> {
+				populateReverseLogistics(map, cells);
+				populateTransitLogistics(map, cells, options);
+			}));
+		}
+		RailGraph railGraph = new RailGraph(map);
+		for (int[] nodes : partitionRailGraph(railGraph)) {
+			analysisTasks.add(ForkJoinPool.commonPool().submit(() -> {
+				populateRailBlocking(railGraph, nodes);
+				populateRailStationLogistics(railGraph, nodes);
+			}));
+		}
+		analysisTasks.forEach(ForkJoinTask::join);
+		railGraph.applyEdgeFlags();
+
+		List<Renderer> renderers = new ArrayList<>();
+
+		entityRenderingTuples.forEach(t -> {
+			if (t.renderers == null) {
+				t.renderers = new ArrayList<>();
+				try {
+					t.factory.createRenderers(t.renderers::add, map, table, t.entity);
+				} catch (Exception e) {
+					addException(reporting, e);
+				}
+			}
+			renderers.addAll(t.renderers);
+		});
+		tileRenderingTuples.forEach(t -> {
+			if (t.renderers == null) {
+				t.renderers = new ArrayList<>();
+				try {
+					t.factory.createRenderers(t.renderers::add, map, table, t.tile);
+				} catch (Exception e) {
+					addException(reporting, e);
+				}
+			}
+			renderers.addAll(t.renderers);
+		});
+
+		entityRenderingTuples.forEach(t -> {
+			if (t.moduleIcons == null) {
+				t.moduleIcons = new ArrayList<>();
+				try {
+					t.factory.createModuleIcons(t.moduleIcons::add, map, table, t.entity);
+				} catch (Exception e) {
+					addException(reporting, e);
+				}
+			}
+			renderers.addAll(t.moduleIcons);
+		});
+
+		entityRenderingTuples.forEach(t -> {
+			try {
+				t.factory.populateWires(map, table, t.entity);
+			} catch (Exception e) {
+				addException(reporting, e);
+			}
+		});
+		createWireRenderers(renderers::add, map.getWires());
+
+		showLogisticGrid(renderers::add, table, map, options);
+		showRailLogistics(renderers::add, table, map, options);
+
+		ArrayListMultimap<Direction, PanelRenderer> borderPanels = ArrayListMultimap.create();
+		Map<String, Double> totalItems = null;
+		if (options.optBoolean("show-info-panels", true)) {
+			blueprint.getLabel().ifPresent(label -> {
+				borderPanels.put(Direction.NORTH, createHeaderPanel(label));
+			});
+			borderPanels.put(Direction.SOUTH, createFooterPanel());
+
+			totalItems = generateTotalItems(table, blueprint);
+			borderPanels.put(Direction.EAST, createItemListPanel(table, "TOTAL", totalItems));
+			borderPanels.put(Direction.EAST,
+					createItemListPanel(table, "RAW", generateTotalRawItems(table, table.getRecipes(), totalItems)));
+		}
+
+		if (options.optBoolean("debug-placement")) {
+			entityRenderingTuples.forEach(t -> {
+				Point2D.Double pos = t.entity.getPosition();
+				renderers.add(new Renderer(Layer.DEBUG_P, pos) {
+					@Override
+					public void render(Graphics2D g) {
+						g.setColor(Color.cyan);
+						g.fill(new Ellipse2D.Double(pos.x - 0.1, pos.y - 0.1, 0.2, 0.2));
+						Stroke ps = g.getStroke();
+						g.setStroke(new BasicStroke(3f / 32f));
+						g.setColor(Color.green);
+						g.draw(new Line2D.Double(pos, t.entity.getDirection().offset(pos, 0.3)));
+						g.setStroke(ps);
+					}
+				});
+			});
+			tileRenderingTuples.forEach(t -> {
+				Point2D.Double pos = t.tile.getPosition();
+				renderers.add(new Renderer(Layer.DEBUG_P, pos) {
+					@Override
+					public void render(Graphics2D g) {
+						g.setColor(Color.cyan);
+						g.fill(new Ellipse2D.Double(pos.x - 0.1, pos.y - 0.1, 0.2, 0.2));
+					}
+				});
+			});
+		}
+
+		WorldRendering rendering = new WorldRendering();
+		rendering.renderers = renderers;
+		rendering.borderPanels = borderPanels;
+		rendering.bounds = computeBounds(renderers);
+		rendering.index = new RendererIndex(renderers, rendering.bounds);
+		rendering.order = sortOrder(renderers);
+		rendering.rank = new int[renderers.size()];
+		for (int i = 0; i < rendering.order.length; i++) {
+			rendering.rank[rendering.order[i]] = i;
+		}
+		rendering.totalItems = totalItems;
+		return rendering;
+	}
+
+	private static Rectangle2D.Double computeBounds(List<Renderer> renderers) {
+		if (renderers.isEmpty()) {
+			return new Rectangle2D.Double();
+		}
+		boolean first = true;
+		double minX = 0, minY = 0, maxX = 0, maxY = 0;
+		for (Renderer renderer : renderers) {
+			Rectangle2D.Double bounds = renderer.bounds;
+			if (first) {
+				first = false;
+				minX = bounds.getMinX();
+				minY = bounds.getMinY();
+				maxX = bounds.getMaxX();
+				maxY = bounds.getMaxY();
+			} else {
+				minX = Math.min(minX, bounds.getMinX());
+				minY = Math.min(minY, bounds.getMinY());
+				maxX = Math.max(maxX, bounds.getMaxX());
+				maxY = Math.max(maxY, bounds.getMaxY());
+			}
+		}
+		return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	private static RenderLayout computeLayout(int tileSize, Rectangle2D.Double renderersBounds,
+			ArrayListMultimap<Direction, PanelRenderer> borderPanels, JSONObject options, boolean limitPixels)
+			throws JSONException {
 
-		Rectangle2D.Double worldBounds = computeBounds(renderers);
-		worldBounds.setFrameFromDiagonal(Math.floor(worldBounds.getMinX() + 0.4) - 1,
-				Math.floor(worldBounds.getMinY() + 0.4) - 1, Math.ceil(worldBounds.getMaxX() - 0.4) + 1,
-				Math.ceil(worldBounds.getMaxY() - 0.4) + 1);
+		Rectangle2D.Double worldBounds = computeWorldBounds(renderersBounds);
 
 		Rectangle2D.Double centerBounds = new Rectangle2D.Double(worldBounds.x, worldBounds.y, worldBounds.width,
 				worldBounds.height);
@@ -200,7 +716,7 @@ public class FBSR {
 			}
 		}
 		float worldRenderScale = 1;
-		while (((long) (centerBounds.getWidth() * worldRenderScale * tileSize)
+		while (limitPixels && ((long) (centerBounds.getWidth() * worldRenderScale * tileSize)
 				* (long) (centerBounds.getHeight() * worldRenderScale * tileSize)) > MAX_WORLD_RENDER_PIXELS) {
 			worldRenderScale /= 2;
 		}
@@ -261,38 +777,337 @@ public class FBSR {
 			}
 		}
 
-		Rectangle2D.Double totalBounds = new Rectangle2D.Double(centerBounds.x - borderLeft / worldRenderScale,
-				centerBounds.y - borderTop / worldRenderScale,
-				centerBounds.width + borderLeft / worldRenderScale + borderRight / worldRenderScale,
-				centerBounds.height + borderTop / worldRenderScale + borderBottom / worldRenderScale);
-
-		// System.out.println("IMAGE SCALE: " + worldRenderScale);
-		// System.out.println("IMAGE DIM: " + (int) (totalBounds.getWidth() *
-		// worldRenderScale * tileSize) + ","
-		// + (int) (totalBounds.getHeight() * worldRenderScale * tileSize));
+		Rectangle2D.Double totalBounds = new Rectangle2D.Double(centerBounds.x - borderLeft / worldRenderScale,
+				centerBounds.y - borderTop / worldRenderScale,
+				centerBounds.width + borderLeft / worldRenderScale + borderRight / worldRenderScale,
+				centerBounds.height + borderTop / worldRenderScale + borderBottom / worldRenderScale);
+
+		RenderLayout layout = new RenderLayout();
+		layout.worldBounds = worldBounds;
+		layout.centerBounds = centerBounds;
+		layout.totalBounds = totalBounds;
+		layout.worldRenderScale = worldRenderScale;
+		layout.imageWidth = (int) (totalBounds.getWidth() * worldRenderScale * tileSize);
+		layout.imageHeight = (int) (totalBounds.getHeight() * worldRenderScale * tileSize);
+		return layout;
+	}
+
+	// Snaps the renderer bounds to the grid, with a one tile margin
+	private static Rectangle2D.Double computeWorldBounds(Rectangle2D.Double renderersBounds) {
+		Rectangle2D.Double worldBounds = new Rectangle2D.Double();
+		worldBounds.setFrameFromDiagonal(Math.floor(renderersBounds.getMinX() + 0.4) - 1,
+				Math.floor(renderersBounds.getMinY() + 0.4) - 1, Math.ceil(renderersBounds.getMaxX() - 0.4) + 1,
+				Math.ceil(renderersBounds.getMaxY() - 0.4) + 1);
+		return worldBounds;
+	}
+
+	private static PanelRenderer createFooterPanel() {
+		return new PanelRenderer(0, 0.5) {
+			@Override
+			public void render(Graphics2D g, double width, double height) {
+				g.setColor(GRID_COLOR);
+				g.setFont(new Font("Monospaced", Font.BOLD, 1).deriveFont(0.4f));
+				String footerMessage;
+				if (width > 5.5) {
+					footerMessage = "Made by BlueprintBot - Factorio " + getVersion();
+				} else {
+					footerMessage = "BlueprintBot";
+				}
+				g.drawString(footerMessage, (float) (0.11), (float) (height - 0.11));
+			}
+		};
+	}
+
+	private static PanelRenderer createHeaderPanel(String label) {
+		return new PanelRenderer(0, 0.75) {
+			@Override
+			public void render(Graphics2D g, double width, double height) {
+				g.setColor(GRID_COLOR.brighter());
+				g.setFont(new Font("Monospaced", Font.BOLD, 1).deriveFont(0.5f));
+				g.drawString(label, (float) (0.21), (float) (height - 0.21));
+			}
+		};
+	}
+
+	/**
+	 * Renders the blueprint like {@link #renderBlueprint}, keeping its world and
+	 * image so that later edits can be applied with
+	 * {@link #updateIncrementalRendering}. The render cache is not used. The
+	 * image keeps its render budget reserved until the rendering is closed.
+	 */
+	public static IncrementalRendering createIncrementalRendering(Blueprint blueprint, CommandReporting reporting,
+			JSONObject options) throws JSONException, IOException {
+		System.out.println("Rendering " + blueprint.getLabel().orElse("(No Name)"));
+		long startMillis = System.currentTimeMillis();
+
+		IncrementalRendering ret = new IncrementalRendering();
+		ret.blueprint = blueprint;
+		ret.options = options;
+		ret.entityRenderingTuples = new ArrayList<>();
+		ret.tileRenderingTuples = new ArrayList<>();
+		createRenderingTuples(blueprint, reporting, options, ret.entityRenderingTuples, ret.tileRenderingTuples);
+		ret.map = new WorldMap();
+		populateWorldMap(blueprint, reporting, ret.map, ret.entityRenderingTuples, ret.tileRenderingTuples);
+		ret.rendering = buildWorldRendering(blueprint, reporting, options, ret.map, ret.entityRenderingTuples,
+				ret.tileRenderingTuples, partitionLogisticGrid(ret.map));
+		ret.layout = computeLayout((int) Math.round(tileSize), ret.rendering.bounds, ret.rendering.borderPanels,
+				options, true);
+		ret.image = drawImage(reporting, ret.layout, ret.rendering, options);
+		ret.level = getLevel(reporting);
+
+		long endMillis = System.currentTimeMillis();
+		System.out.println("\tRender Time " + (endMillis - startMillis) + " ms");
+		blueprint.setRenderTime(endMillis - startMillis);
+		return ret;
+	}
+
+	private static PanelRenderer createItemListPanel(DataTable table, String title, Map<String, Double> items) {
+		final double header = 0.8;
+		final double spacing = 0.7;
+		final double iconSize = 0.6;
+		return new PanelRenderer(3.0, header + items.size() * spacing + 0.2) {
+			@Override
+			public void render(Graphics2D g, double width, double height) {
+				g.setColor(GRID_COLOR);
+				g.setStroke(GRID_STROKE);
+				g.draw(new Rectangle2D.Double(0, 0, width, height));
+
+				Font font = new Font("Monospaced", Font.BOLD, 1).deriveFont(0.6f);
+
+				g.setFont(font);
+				g.drawString(title, 0.3f, 0.65f);
+
+				double startX = 0.6;
+				double startY = header + spacing / 2.0;
+				Rectangle2D.Double spriteBox = new Rectangle2D.Double(startX - iconSize / 2.0, startY - iconSize / 2.0,
+						iconSize, iconSize);
+				Point2D.Double textPos = new Point2D.Double(startX + 0.5, startY + 0.18);
+
+				items.entrySet().stream().sorted((e1, e2) -> e1.getKey().compareTo(e2.getKey())).forEach(e -> {
+					String itemName = e.getKey();
+					double amount = e.getValue();
+
+					Optional<BufferedImage> image = Optional.empty();
+					if (itemName.equals(TotalRawCalculator.RAW_TIME)) {
+						image = Optional.of(timeIcon);
+					} else {
+						Optional<? extends DataPrototype> prototype = table.getItem(itemName);
+						if (!prototype.isPresent()) {
+							prototype = table.getFluid(itemName);
+						}
+						image = prototype.map(FactorioData::getIcon);
+					}
+					image.ifPresent(i -> {
+						RenderUtils.drawImageInBounds(i, new Rectangle(0, 0, i.getWidth(), i.getHeight()), spriteBox,
+								g);
+					});
+
+					String amountStr;
+					if (amount < 99999) {
+						g.setColor(GRID_COLOR);
+						amountStr = RenderUtils.fmtDouble(Math.ceil(amount));
+					} else if (amount < 9999999) {
+						g.setColor(GRID_COLOR.brighter());
+						amountStr = RenderUtils.fmtDouble(Math.ceil(amount / 1000)) + "k";
+					} else {
+						g.setColor(GRID_COLOR.brighter().brighter());
+						amountStr = RenderUtils.fmtDouble(Math.ceil(amount / 1000000)) + "M";
+					}
+					g.setFont(font);
+					g.drawString(amountStr, (float) textPos.x, (float) textPos.y);
+
+					spriteBox.y += spacing;
+					textPos.y += spacing;
+				});
+			}
+		};
+	}
+
+	/**
+	 * Pairs each entity and tile of the blueprint with its renderer factory,
+	 * aligned to the grid.
+	 */
+	private static void createRenderingTuples(Blueprint blueprint, CommandReporting reporting, JSONObject options,
+			List<EntityRenderingTuple> entityRenderingTuples, List<TileRenderingTuple> tileRenderingTuples) {
+		for (BlueprintEntity entity : blueprint.getEntities()) {
+			if (entity.getLoadError() != null) {
+				synchronized (reporting) {
+					reporting.addException(entity.getLoadError());
+				}
+			}
+			EntityRenderingTuple tuple = new EntityRenderingTuple();
+			tuple.entity = entity;
+			tuple.factory = EntityRendererFactory.forName(entity.getName());
+			if (tuple.factory == EntityRendererFactory.UNKNOWN) {
+				if (options.optBoolean("debug-typeMapping")) {
+					synchronized (reporting) {
+						reporting.addDebug("Unknown Entity! " + entity.getName());
+					}
+				}
+			}
+			entityRenderingTuples.add(tuple);
+		}
+		for (BlueprintTile tile : blueprint.getTiles()) {
+			TileRenderingTuple tuple = new TileRenderingTuple();
+			tuple.tile = tile;
+			tuple.factory = TileRendererFactory.forName(tile.getName());
+			if (tuple.factory == TileRendererFactory.UNKNOWN) {
+				if (options.optBoolean("debug-typeMapping")) {
+					synchronized (reporting) {
+						reporting.addDebug("Unknown Tile! " + tile.getName());
+					}
+				}
+			}
+			tileRenderingTuples.add(tuple);
+		}
+
+		if (blueprint.getVersion().greaterOrEquals(new MapVersion(0, 18, 37, 3)))
+			alignTileRenderingTuplesToGrid(tileRenderingTuples);
+		else // legacy
+			alignRenderingTuplesToGrid(entityRenderingTuples, tileRenderingTuples);
+	}
+
+	private static void createWireRenderers(Consumer<Renderer> register, WireMap wires) {
+		// Block in the high bits and wire number in the low bits, sorted by block
+		long[] keys = new long[wires.getCount()];
+		int keyCount = 0;
+		for (int wire = 0; wire < wires.getCount(); wire++) {
+			if (wires.isPaired(wire)) {
+				int blockX = (int) Math.floor(wires.getStartX(wire) / WIRE_BATCH_TILES);
+				int blockY = (int) Math.floor(wires.getStartY(wire) / WIRE_BATCH_TILES);
+				long block = ((blockY & 0xFFFFL) << 16) | (blockX & 0xFFFFL);
+				keys[keyCount++] = (block << 32) | wire;
+			}
+		}
+		Arrays.sort(keys, 0, keyCount);
+
+		int start = 0;
+		while (start < keyCount) {
+			int end = start + 1;
+			while (end < keyCount && (keys[end] >>> 32) == (keys[start] >>> 32)) {
+				end++;
+			}
+			int[] batch = new int[end - start];
+			Rectangle2D.Double bounds = null;
+			for (int i = 0; i < batch.length; i++) {
+				int wire = (int) keys[start + i];
+				batch[i] = wire;
+				Rectangle2D.Double wireBounds = new Rectangle2D.Double();
+				wireBounds.setFrameFromDiagonal(wires.getStartX(wire), wires.getStartY(wire), wires.getEndX(wire),
+						wires.getEndY(wire));
+				if (bounds == null) {
+					bounds = wireBounds;
+				} else {
+					bounds.add(wireBounds);
+				}
+			}
+
+			register.accept(new Renderer(Layer.WIRE, bounds) {
+				@Override
+				public void render(Graphics2D g) {
+					Stroke ps = g.getStroke();
+					g.setStroke(new BasicStroke(1f / 32f));
+					// One path per color, so each batch is a few draw calls
+					for (int color = 0; color < WIRE_COLORS.length; color++) {
+						Path2D.Double path = new Path2D.Double();
+						for (int wire : batch) {
+							if (wires.getColor(wire) != color) {
+								continue;
+							}
+							RenderUtils.appendWire(path, wires.getStartX(wire), wires.getStartY(wire),
+									wires.getEndX(wire), wires.getEndY(wire));
+						}
+						if (path.getCurrentPoint() != null) {
+							g.setColor(WIRE_COLORS[color]);
+							g.draw(path);
+						}
+					}
+					g.setStroke(ps);
+				}
+			});
+			start = end;
+		}
+	}
+
+	/**
+	 * Builds the world map and all renderers of the blueprint, along with the
+	 * spatial index used by {@link #renderWorldRegion}.
+	 */
+	public static WorldRendering createWorldRendering(Blueprint blueprint, CommandReporting reporting,
+			JSONObject options) {
+		List<EntityRenderingTuple> entityRenderingTuples = new ArrayList<EntityRenderingTuple>();
+		List<TileRenderingTuple> tileRenderingTuples = new ArrayList<TileRenderingTuple>();
+		createRenderingTuples(blueprint, reporting, options, entityRenderingTuples, tileRenderingTuples);
+
+		WorldMap map = new WorldMap();
+		populateWorldMap(blueprint, reporting, map, entityRenderingTuples, tileRenderingTuples);
+		return buildWorldRendering(blueprint, reporting, options, map, entityRenderingTuples, tileRenderingTuples,
+				partitionLogisticGrid(map));
+	}
+
+	/**
+	 * Replaces each value with its position among the distinct values, in
+	 * {@link Double#compare} order.
+	 */
+	private static int[] denseRanks(double[] values) {
+		double[] distinct = values.clone();
+		Arrays.sort(distinct);
+		int distinctCount = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (distinctCount == 0 || Double.compare(distinct[distinctCount - 1], distinct[i]) != 0) {
+				distinct[distinctCount++] = distinct[i];
+			}
+		}
+		int[] ret = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			ret[i] = Arrays.binarySearch(distinct, 0, distinctCount, values[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Draws the whole image. Its reservation is handed to the caller, as the
+	 * image outlives the render.
+	 */
+	private static ReservedImage drawImage(CommandReporting reporting, RenderLayout layout, WorldRendering rendering,
+			JSONObject options) throws JSONException, IOException {
+		RenderScheduler.Reservation reservation = reserveRender(layout, layout.imageHeight, options);
+		try {
+			BufferedImage image = new BufferedImage(layout.imageWidth, layout.imageHeight,
+					BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = image.createGraphics();
+			drawRegion(reporting, g, new Rectangle(0, 0, layout.imageWidth, layout.imageHeight), layout, rendering,
+					rendering.borderPanels, options, new HashSet<>());
+			g.dispose();
+			return new ReservedImage(image, reservation);
+		} catch (RuntimeException | Error e) {
+			if (reservation != null) {
+				reservation.close();
+			}
+			throw e;
+		}
+	}
 
-		int imageWidth = (int) (totalBounds.getWidth() * worldRenderScale * tileSize);
-		int imageHeight = (int) (totalBounds.getHeight() * worldRenderScale * tileSize);
-		System.out.println("\t" + imageWidth + "x" + imageHeight + " (" + worldRenderScale + ")");
+	private static void drawRegion(CommandReporting reporting, Graphics2D g, Rectangle region, RenderLayout layout,
+			WorldRendering rendering, ArrayListMultimap<Direction, PanelRenderer> borderPanels, JSONObject options,
+			Set<Renderer> failedRenderers) throws JSONException {
+		Rectangle2D.Double worldBounds = layout.worldBounds;
+		Rectangle2D.Double centerBounds = layout.centerBounds;
+		Rectangle2D.Double totalBounds = layout.totalBounds;
+		float worldRenderScale = layout.worldRenderScale;
 
-		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
-		Graphics2D g = image.createGraphics();
+		List<Renderer> renderers = rendering.renderers;
+		BitSet visible = rendering.index.query(layout.toWorldBounds(region, RENDERER_OVERDRAW_MARGIN));
 
-		BufferedImage shadowImage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-		Graphics2D shadowG = shadowImage.createGraphics();
 		AffineTransform noXform = g.getTransform();
 
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
 
-		g.scale(image.getWidth() / totalBounds.getWidth(), image.getHeight() / totalBounds.getHeight());
+		g.scale(layout.imageWidth / totalBounds.getWidth(), layout.imageHeight / totalBounds.getHeight());
 		g.translate(-totalBounds.getX(), -totalBounds.getY());
 		AffineTransform worldXform = g.getTransform();
 
-		shadowG.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-		shadowG.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-		shadowG.setTransform(worldXform);
-
 		// Background
 		g.setColor(GROUND_COLOR);
 		g.fill(totalBounds);
@@ -307,64 +1122,69 @@ public class FBSR {
 			g.draw(new Line2D.Double(worldBounds.getMinX(), y, worldBounds.getMaxX(), y));
 		}
 
-		renderers.stream().filter(r -> r instanceof EntityRenderer).map(r -> (EntityRenderer) r).forEach(r -> {
-			try {
-				r.renderShadows(shadowG);
-			} catch (Exception e) {
-				reporting.addException(e);
-			}
-		});
-		shadowG.dispose();
-		RenderUtils.halveAlpha(shadowImage);
-
-		renderers.add(new Renderer(Layer.SHADOW_BUFFER, worldBounds) {
+		Map<Renderer, Exception> shadowExceptions = new ConcurrentHashMap<>();
+		Renderer shadowRenderer = new Renderer(Layer.SHADOW_BUFFER, worldBounds) {
 			@Override
 			public void render(Graphics2D g) throws Exception {
 				AffineTransform tempXform = g.getTransform();
 				g.setTransform(noXform);
-				g.drawImage(shadowImage, 0, 0, null);
+				drawShadows(g, region, layout, rendering, shadowExceptions);
 
 				g.setTransform(tempXform);
 			}
-		});
-
-		boolean debugBounds = options.optBoolean("debug-bounds");
-		renderers.stream().sorted((r1, r2) -> {
-			int ret;
-
-			ret = r1.getLayer().compareTo(r2.getLayer());
-			if (ret != 0) {
-				return ret;
-			}
-
-			Rectangle2D.Double b1 = r1.getBounds();
-			Rectangle2D.Double b2 = r2.getBounds();
-
-			ret = Double.compare(b1.getMinY(), b2.getMinY());
-			if (ret != 0) {
-				return ret;
-			}
+		};
 
-			ret = Double.compare(b1.getMinX(), b2.getMinX());
-			if (ret != 0) {
-				return ret;
+		// Visible renderers in draw order
+		int[] ranks = new int[visible.cardinality()];
+		for (int i = visible.nextSetBit(0), j = 0; i >= 0; i = visible.nextSetBit(i + 1), j++) {
+			ranks[j] = rendering.rank[i];
+		}
+		Arrays.sort(ranks);
+
+		List<Renderer> regionRenderers = new ArrayList<>(ranks.length + 1);
+		for (int rank : ranks) {
+			Renderer r = renderers.get(rendering.order[rank]);
+			if (shadowRenderer != null && r.getLayer().compareTo(Layer.SHADOW_BUFFER) > 0) {
+				regionRenderers.add(shadowRenderer);
+				shadowRenderer = null;
 			}
+			regionRenderers.add(r);
+		}
+		if (shadowRenderer != null) {
+			regionRenderers.add(shadowRenderer);
+		}
 
-			ret = r1.getLayer().compareTo(r2.getLayer());
-			return ret;
-		}).forEach(r -> {
-			try {
-				r.render(g);
+		boolean debugBounds = options.optBoolean("debug-bounds");
+		int bandCount = Math.min(options.optInt("parallel-bands", 1), region.height);
+		GraphicsState state = new GraphicsState(g);
+		if (bandCount > 1) {
+			renderBands(reporting, g, noXform, state, regionRenderers, bandCount, region, layout, debugBounds,
+					failedRenderers);
+		} else {
+			regionRenderers.forEach(r -> {
+				try {
+					state.restore(g);
+					r.render(g);
 
-				if (debugBounds) {
-					g.setStroke(new BasicStroke(1f / 32f));
-					g.setColor(Color.magenta);
-					g.draw(r.bounds);
+					if (debugBounds) {
+						g.setStroke(new BasicStroke(1f / 32f));
+						g.setColor(Color.magenta);
+						g.draw(r.bounds);
+					}
+				} catch (Exception e) {
+					if (failedRenderers.add(r)) {
+						addException(reporting, e);
+					}
 				}
-			} catch (Exception e) {
-				reporting.addException(e);
+			});
+		}
+		for (int i = visible.nextSetBit(0); i >= 0; i = visible.nextSetBit(i + 1)) {
+			Renderer r = renderers.get(i);
+			Exception e = shadowExceptions.get(r);
+			if (e != null && failedRenderers.add(r)) {
+				addException(reporting, e);
 			}
-		});
+		}
 		g.setTransform(worldXform);
 
 		// Grid Numbers
@@ -395,7 +1215,7 @@ public class FBSR {
 				try {
 					panel.render(g, bounds.width, bounds.height);
 				} catch (Exception e) {
-					reporting.addException(e);
+					addException(reporting, e);
 				}
 			}
 		}
@@ -414,7 +1234,7 @@ public class FBSR {
 				try {
 					panel.render(g, bounds.width, bounds.height);
 				} catch (Exception e) {
-					reporting.addException(e);
+					addException(reporting, e);
 				}
 				bounds.y += panel.minHeight / worldRenderScale;
 			}
@@ -430,7 +1250,7 @@ public class FBSR {
 				try {
 					panel.render(g, bounds.width, bounds.height);
 				} catch (Exception e) {
-					reporting.addException(e);
+					addException(reporting, e);
 				}
 				bounds.y += panel.minHeight / worldRenderScale;
 			}
@@ -447,12 +1267,12 @@ public class FBSR {
 				try {
 					panel.render(g, bounds.width, bounds.height);
 				} catch (Exception e) {
-					reporting.addException(e);
+					addException(reporting, e);
 				}
 			}
 		}
 
-		Level level = reporting.getLevel();
+		Level level = getLevel(reporting);
 		if (level != Level.INFO) {
 			g.setTransform(worldXform);
 			g.setStroke(GRID_STROKE);
@@ -460,122 +1280,65 @@ public class FBSR {
 			g.draw(centerBounds);
 		}
 
-		g.dispose();
-		return image;
 	}
 
-	private static Rectangle2D.Double computeBounds(List<Renderer> renderers) {
-		if (renderers.isEmpty()) {
-			return new Rectangle2D.Double();
+	/**
+	 * Entity shadows are composited into a strip buffer first so overlapping
+	 * shadows do not darken each other, and the strip is then drawn at half
+	 * alpha. Only the part of the region inside the clip of g is drawn, so
+	 * parallel bands each render their own shadows.
+	 */
+	private static void drawShadows(Graphics2D g, Rectangle region, RenderLayout layout, WorldRendering rendering,
+			Map<Renderer, Exception> exceptions) {
+		Rectangle area = region;
+		Rectangle clip = g.getClipBounds();
+		if (clip != null) {
+			area = region.intersection(clip);
 		}
-		boolean first = true;
-		double minX = 0, minY = 0, maxX = 0, maxY = 0;
-		for (Renderer renderer : renderers) {
-			Rectangle2D.Double bounds = renderer.bounds;
-			if (first) {
-				first = false;
-				minX = bounds.getMinX();
-				minY = bounds.getMinY();
-				maxX = bounds.getMaxX();
-				maxY = bounds.getMaxY();
-			} else {
-				minX = Math.min(minX, bounds.getMinX());
-				minY = Math.min(minY, bounds.getMinY());
-				maxX = Math.max(maxX, bounds.getMaxX());
-				maxY = Math.max(maxY, bounds.getMaxY());
-			}
+		if (area.isEmpty()) {
+			return;
 		}
-		return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
-	}
 
-	private static PanelRenderer createFooterPanel() {
-		return new PanelRenderer(0, 0.5) {
-			@Override
-			public void render(Graphics2D g, double width, double height) {
-				g.setColor(GRID_COLOR);
-				g.setFont(new Font("Monospaced", Font.BOLD, 1).deriveFont(0.4f));
-				String footerMessage;
-				if (width > 5.5) {
-					footerMessage = "Made by BlueprintBot - Factorio " + getVersion();
-				} else {
-					footerMessage = "BlueprintBot";
+		Rectangle2D.Double totalBounds = layout.totalBounds;
+		BufferedImage shadowImage = new BufferedImage(area.width, Math.min(area.height, SHADOW_STRIP_HEIGHT),
+				BufferedImage.TYPE_INT_ARGB);
+		BitSet visible = new BitSet(rendering.renderers.size());
+		Composite tempComposite = g.getComposite();
+
+		for (int stripY = area.y; stripY < area.y + area.height; stripY += shadowImage.getHeight()) {
+			Rectangle strip = new Rectangle(area.x, stripY, area.width,
+					Math.min(shadowImage.getHeight(), area.y + area.height - stripY));
+
+			Graphics2D shadowG = shadowImage.createGraphics();
+			shadowG.setComposite(AlphaComposite.Clear);
+			shadowG.fillRect(0, 0, shadowImage.getWidth(), shadowImage.getHeight());
+			shadowG.setComposite(AlphaComposite.SrcOver);
+			shadowG.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			shadowG.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			shadowG.clipRect(0, 0, strip.width, strip.height);
+			shadowG.translate(-strip.x, -strip.y);
+			shadowG.scale(layout.imageWidth / totalBounds.getWidth(), layout.imageHeight / totalBounds.getHeight());
+			shadowG.translate(-totalBounds.getX(), -totalBounds.getY());
+
+			visible.clear();
+			rendering.index.query(layout.toWorldBounds(strip, RENDERER_OVERDRAW_MARGIN), visible);
+			for (int i = visible.nextSetBit(0); i >= 0; i = visible.nextSetBit(i + 1)) {
+				Renderer r = rendering.renderers.get(i);
+				if (r instanceof EntityRenderer && !exceptions.containsKey(r)) {
+					try {
+						((EntityRenderer) r).renderShadows(shadowG);
+					} catch (Exception e) {
+						exceptions.putIfAbsent(r, e);
+					}
 				}
-				g.drawString(footerMessage, (float) (0.11), (float) (height - 0.11));
-			}
-		};
-	}
-
-	private static PanelRenderer createHeaderPanel(String label) {
-		return new PanelRenderer(0, 0.75) {
-			@Override
-			public void render(Graphics2D g, double width, double height) {
-				g.setColor(GRID_COLOR.brighter());
-				g.setFont(new Font("Monospaced", Font.BOLD, 1).deriveFont(0.5f));
-				g.drawString(label, (float) (0.21), (float) (height - 0.21));
 			}
-		};
-	}
-
-	private static PanelRenderer createItemListPanel(DataTable table, String title, Map<String, Double> items) {
-		final double header = 0.8;
-		final double spacing = 0.7;
-		final double iconSize = 0.6;
-		return new PanelRenderer(3.0, header + items.size() * spacing + 0.2) {
-			@Override
-			public void render(Graphics2D g, double width, double height) {
-				g.setColor(GRID_COLOR);
-				g.setStroke(GRID_STROKE);
-				g.draw(new Rectangle2D.Double(0, 0, width, height));
-
-				Font font = new Font("Monospaced", Font.BOLD, 1).deriveFont(0.6f);
-
-				g.setFont(font);
-				g.drawString(title, 0.3f, 0.65f);
-
-				double startX = 0.6;
-				double startY = header + spacing / 2.0;
-				Rectangle2D.Double spriteBox = new Rectangle2D.Double(startX - iconSize / 2.0, startY - iconSize / 2.0,
-						iconSize, iconSize);
-				Point2D.Double textPos = new Point2D.Double(startX + 0.5, startY + 0.18);
-
-				items.entrySet().stream().sorted((e1, e2) -> e1.getKey().compareTo(e2.getKey())).forEach(e -> {
-					String itemName = e.getKey();
-					double amount = e.getValue();
-
-					Optional<BufferedImage> image = Optional.empty();
-					if (itemName.equals(TotalRawCalculator.RAW_TIME)) {
-						image = Optional.of(timeIcon);
-					} else {
-						Optional<? extends DataPrototype> prototype = table.getItem(itemName);
-						if (!prototype.isPresent()) {
-							prototype = table.getFluid(itemName);
-						}
-						image = prototype.map(FactorioData::getIcon);
-					}
-					image.ifPresent(i -> {
-						RenderUtils.drawImageInBounds(i, new Rectangle(0, 0, i.getWidth(), i.getHeight()), spriteBox,
-								g);
-					});
-
-					String amountStr;
-					if (amount < 99999) {
-						g.setColor(GRID_COLOR);
-						amountStr = RenderUtils.fmtDouble(Math.ceil(amount));
-					} else if (amount < 9999999) {
-						g.setColor(GRID_COLOR.brighter());
-						amountStr = RenderUtils.fmtDouble(Math.ceil(amount / 1000)) + "k";
-					} else {
-						g.setColor(GRID_COLOR.brighter().brighter());
-						amountStr = RenderUtils.fmtDouble(Math.ceil(amount / 1000000)) + "M";
-					}
-					g.setFont(font);
-					g.drawString(amountStr, (float) textPos.x, (float) textPos.y);
+			shadowG.dispose();
 
-					spriteBox.y += spacing;
-					textPos.y += spacing;
-				});
-			}
-		};
+			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+			g.drawImage(shadowImage, strip.x, strip.y, strip.x + strip.width, strip.y + strip.height, 0, 0,
+					strip.width, strip.height, null);
+			g.setComposite(tempComposite);
+		}
 	}
 
 	public static Map<String, Double> generateSummedTotalItems(DataTable table, Blueprint blueprint) {
@@ -679,6 +1442,12 @@ public class FBSR {
 		return ret;
 	}
 
+	private static int getExceptionCount(CommandReporting reporting) {
+		synchronized (reporting) {
+			return reporting.getExceptions().size();
+		}
+	}
+
 	private static Color getItemLogisticColor(DataTable table, String itemName) {
 		return itemColorCache.computeIfAbsent(itemName, k -> {
 			Optional<ItemPrototype> optProto = table.getItem(k);
@@ -698,6 +1467,20 @@ public class FBSR {
 		});
 	}
 
+	private static Level getLevel(CommandReporting reporting) {
+		synchronized (reporting) {
+			return reporting.getLevel();
+		}
+	}
+
+	public static RenderCache getRenderCache() {
+		return renderCache;
+	}
+
+	public static RenderScheduler getRenderScheduler() {
+		return renderScheduler;
+	}
+
 	public static String getVersion() {
 		if (version == null) {
 			ModInfo baseInfo;
@@ -718,140 +1501,313 @@ public class FBSR {
 			return;
 		}
 		DataTable table = FactorioData.getTable();
+		ItemRegistry.initialize(table);
 		EntityRendererFactory.initPrototypes(table);
 		TileRendererFactory.initPrototypes(table);
+
+		JSONObject cacheJson = Config.get().optJSONObject("render-cache");
+		if (cacheJson == null) {
+			cacheJson = new JSONObject();
+		}
+		if (cacheJson.optBoolean("enabled", true)) {
+			String diskFolder = cacheJson.optString("disk-folder", "");
+			renderCache = new RenderCache(cacheJson.optLong("memory-mb", 256) * 1024 * 1024,
+					diskFolder.isEmpty() ? Optional.empty() : Optional.of(new File(diskFolder)),
+					cacheJson.optLong("disk-mb", 2048) * 1024 * 1024);
+		}
+
+		JSONObject schedulerJson = Config.get().optJSONObject("render-scheduler");
+		if (schedulerJson == null) {
+			schedulerJson = new JSONObject();
+		}
+		long budgetBytes = schedulerJson.has("budget-mb") ? schedulerJson.getLong("budget-mb") * 1024 * 1024
+				: Runtime.getRuntime().maxMemory() / 2;
+		renderScheduler = new RenderScheduler(budgetBytes, schedulerJson.optLong("queue-timeout-seconds", 300) * 1000);
+
+		int bookThreads = schedulerJson.optInt("book-threads",
+				Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+		bookRenderThreads = bookThreads;
+		AtomicInteger bookThreadCount = new AtomicInteger();
+		bookRenderExecutor = Executors.newFixedThreadPool(bookThreads, r -> {
+			Thread thread = new Thread(r, "FBSR Book Render " + bookThreadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		initialized = true;
+	}
+
+	// Unlike Rectangle2D.intersects, this includes edges and zero size bounds
+	private static boolean isDirtyCell(ChunkedBitGrid dirtyTiles, Cell<Integer, Integer, LogisticGridCell> c) {
+		return dirtyTiles.get(c.getRowKey() >> 1, c.getColumnKey() >> 1) != 0;
+	}
+
+	private static boolean isDirtyTile(ChunkedBitGrid dirtyTiles, Point2D.Double pos) {
+		return dirtyTiles.get(WorldMap.tile(pos.x), WorldMap.tile(pos.y)) != 0;
+	}
+
+	private static boolean isInRegion(Renderer renderer, Rectangle2D.Double region) {
+		Rectangle2D.Double bounds = renderer.getBounds();
+		return bounds.getMaxX() >= region.getMinX() && bounds.getMinX() <= region.getMaxX()
+				&& bounds.getMaxY() >= region.getMinY() && bounds.getMinY() <= region.getMaxY();
+	}
+
+	private static boolean isSameRailEdge(RailEdge edge1, RailEdge edge2) {
+		return edge1.getStartPos().equals(edge2.getStartPos()) && edge1.getStartDir() == edge2.getStartDir()
+				&& edge1.getEndPos().equals(edge2.getEndPos()) && edge1.getEndDir() == edge2.getEndDir()
+				&& edge1.isCurved() == edge2.isCurved() && edge1.isBlocked() == edge2.isBlocked()
+				&& edge1.isInput() == edge2.isInput() && edge1.isOutput() == edge2.isOutput();
+	}
+
+	private static boolean isSameWire(WireMap wires1, WireMap wires2, int wire) {
+		return wires1.getStartX(wire) == wires2.getStartX(wire) && wires1.getStartY(wire) == wires2.getStartY(wire)
+				&& wires1.getEndX(wire) == wires2.getEndX(wire) && wires1.getEndY(wire) == wires2.getEndY(wire)
+				&& wires1.getColor(wire) == wires2.getColor(wire) && wires1.isPaired(wire) == wires2.isPaired(wire);
+	}
+
+	private static Rectangle2D.Double lineBounds(double x1, double y1, double x2, double y2) {
+		Rectangle2D.Double ret = new Rectangle2D.Double();
+		ret.setFrameFromDiagonal(x1, y1, x2, y2);
+		return ret;
+	}
+
+	/**
+	 * Joins the logistic cells that are linked by moves or warps, by index in
+	 * the list.
+	 */
+	private static DisjointSets linkLogisticGrid(WorldMap map, List<Cell<Integer, Integer, LogisticGridCell>> cells) {
+		Map<LogisticGridCell, Integer> indices = new IdentityHashMap<>();
+		for (int i = 0; i < cells.size(); i++) {
+			indices.put(cells.get(i).getValue(), i);
+		}
+
+		DisjointSets sets = new DisjointSets(cells.size());
+		for (int i = 0; i < cells.size(); i++) {
+			int index = i;
+			Cell<Integer, Integer, LogisticGridCell> c = cells.get(i);
+			Point2D.Double pos = map.getLogisticCellPosition(c);
+			LogisticGridCell cell = c.getValue();
+			cell.getMove().flatMap(d -> map.getLogisticGridCell(d.offset(pos, 0.5)))
+					.ifPresent(mc -> sets.union(index, indices.get(mc)));
+			cell.getWarps().ifPresent(l -> {
+				for (Point2D.Double p : l) {
+					map.getLogisticGridCell(p).ifPresent(mc -> sets.union(index, indices.get(mc)));
+				}
+			});
+		}
+		return sets;
+	}
+
+	private static Rectangle2D.Double logisticCellBounds(Cell<Integer, Integer, LogisticGridCell> c) {
+		return new Rectangle2D.Double(c.getRowKey() / 2.0, c.getColumnKey() / 2.0, 0.5, 0.5);
+	}
+
+	private static void markDirtyTiles(ChunkedBitGrid dirtyTiles, Rectangle2D.Double bounds, double margin) {
+		int maxX = WorldMap.tile(bounds.getMaxX() + margin);
+		int maxY = WorldMap.tile(bounds.getMaxY() + margin);
+		for (int y = WorldMap.tile(bounds.getMinY() - margin); y <= maxY; y++) {
+			for (int x = WorldMap.tile(bounds.getMinX() - margin); x <= maxX; x++) {
+				dirtyTiles.set(x, y, 1);
+			}
+		}
+	}
+
+	/**
+	 * Groups the elements into batches of whole connected components, given the
+	 * component of each element by index, keeping their order within each
+	 * component.
+	 */
+	private static <T> List<List<T>> partitionComponents(List<T> elements, IntUnaryOperator componentOf) {
+		Map<Integer, List<T>> components = new LinkedHashMap<>();
+		for (int i = 0; i < elements.size(); i++) {
+			components.computeIfAbsent(componentOf.applyAsInt(i), k -> new ArrayList<>()).add(elements.get(i));
+		}
+
+		List<List<T>> batches = new ArrayList<>();
+		List<T> batch = new ArrayList<>();
+		for (List<T> component : components.values()) {
+			batch.addAll(component);
+			if (batch.size() >= ANALYSIS_BATCH_SIZE) {
+				batches.add(batch);
+				batch = new ArrayList<>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			batches.add(batch);
+		}
+		return batches;
+	}
+
+	/**
+	 * Batches of the logistic cells in components that may have changed since
+	 * the previous map: those with a cell on a dirty tile, or with a cell that
+	 * was in such a component or is new. The cells of the other components are
+	 * replaced by the already analyzed cells of the previous map. The bounds of
+	 * the changed components, before and after, are added to dirtyBounds.
+	 */
+	private static List<List<Cell<Integer, Integer, LogisticGridCell>>> partitionDirtyLogisticGrid(WorldMap map,
+			WorldMap previousMap, ChunkedBitGrid dirtyTiles, List<Rectangle2D.Double> dirtyBounds) {
+		Table<Integer, Integer, LogisticGridCell> previousGrid = previousMap.getLogisticGrid();
+		List<Cell<Integer, Integer, LogisticGridCell>> previousCells = new ArrayList<>(previousGrid.cellSet());
+		DisjointSets previousSets = linkLogisticGrid(previousMap, previousCells);
+		Set<Integer> previousDirtyRoots = new HashSet<>();
+		for (int i = 0; i < previousCells.size(); i++) {
+			if (isDirtyCell(dirtyTiles, previousCells.get(i))) {
+				previousDirtyRoots.add(previousSets.find(i));
+			}
+		}
+		// Indexed by half tile X, Y
+		ChunkedBitGrid previousDirtyCells = new ChunkedBitGrid(1);
+		for (int i = 0; i < previousCells.size(); i++) {
+			Cell<Integer, Integer, LogisticGridCell> c = previousCells.get(i);
+			if (previousDirtyRoots.contains(previousSets.find(i))) {
+				previousDirtyCells.set(c.getRowKey(), c.getColumnKey(), 1);
+				dirtyBounds.add(logisticCellBounds(c));
+			}
+		}
+
+		Table<Integer, Integer, LogisticGridCell> grid = map.getLogisticGrid();
+		List<Cell<Integer, Integer, LogisticGridCell>> cells = new ArrayList<>(grid.cellSet());
+		DisjointSets sets = linkLogisticGrid(map, cells);
+		Set<Integer> dirtyRoots = new HashSet<>();
+		for (int i = 0; i < cells.size(); i++) {
+			Cell<Integer, Integer, LogisticGridCell> c = cells.get(i);
+			if (isDirtyCell(dirtyTiles, c) || previousDirtyCells.get(c.getRowKey(), c.getColumnKey()) != 0
+					|| !previousGrid.contains(c.getRowKey(), c.getColumnKey())) {
+				dirtyRoots.add(sets.find(i));
+			}
+		}
+
+		List<Cell<Integer, Integer, LogisticGridCell>> dirtyCells = new ArrayList<>();
+		int[] dirtyCellRoots = new int[cells.size()];
+		for (int i = 0; i < cells.size(); i++) {
+			Cell<Integer, Integer, LogisticGridCell> c = cells.get(i);
+			int root = sets.find(i);
+			if (dirtyRoots.contains(root)) {
+				dirtyCellRoots[dirtyCells.size()] = root;
+				dirtyCells.add(c);
+				dirtyBounds.add(logisticCellBounds(c));
+			} else {
+				grid.put(c.getRowKey(), c.getColumnKey(), previousGrid.get(c.getRowKey(), c.getColumnKey()));
+			}
+		}
+		return partitionComponents(dirtyCells, i -> dirtyCellRoots[i]);
+	}
+
+	/**
+	 * Batches of logistic cells that are not linked by moves or warps to any
+	 * cell of another batch.
+	 */
+	private static List<List<Cell<Integer, Integer, LogisticGridCell>>> partitionLogisticGrid(WorldMap map) {
+		List<Cell<Integer, Integer, LogisticGridCell>> cells = new ArrayList<>(map.getLogisticGrid().cellSet());
+		return partitionComponents(cells, linkLogisticGrid(map, cells)::find);
+	}
+
+	/**
+	 * Batches of rail nodes that are not linked by rails to any node of another
+	 * batch.
+	 */
+	private static List<int[]> partitionRailGraph(RailGraph graph) {
+		List<Integer> nodes = new ArrayList<>();
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			nodes.add(node);
+		}
+		DisjointSets sets = new DisjointSets(graph.getNodeCount());
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+			sets.union(graph.getStartNode(edge), graph.getEndNode(edge));
+		}
+		return partitionComponents(nodes, sets::find).stream().map(l -> l.stream().mapToInt(i -> i).toArray())
+				.collect(Collectors.toList());
 	}
 
-	private static void populateRailBlocking(WorldMap map) {
-		map.getRailNodes().cellSet().stream().filter(c -> c.getValue().hasSignals()).forEach(c -> {
-			RailNode blockingNode = c.getValue();
-			Set<Direction> signals = blockingNode.getSignals();
-			for (Direction signalDir : signals) {
-				Direction blockingDir = signalDir.back();
-				if (signals.contains(blockingDir)) {
+	private static void populateRailBlocking(RailGraph graph, int[] nodes) {
+		RailGraph.EdgeQueue work = new RailGraph.EdgeQueue();
+		for (int blockingNode : nodes) {
+			int signals = graph.getSignals(blockingNode);
+			for (int signalDir = 0; signals != 0 && signalDir < Direction.values().length; signalDir++) {
+				int blockingDir = RailGraph.back(signalDir);
+				if ((signals & (1 << signalDir)) == 0 || (signals & (1 << blockingDir)) != 0) {
 					continue;
 				}
 
-				{
-					Queue<RailEdge> work = new ArrayDeque<>();
-					work.addAll(blockingNode.getOutgoingEdges(blockingDir));
-					while (!work.isEmpty()) {
-						RailEdge edge = work.poll();
-						if (edge.isBlocked()) {
-							continue;
-						}
-						edge.setBlocked(true);
-						RailNode node = map.getRailNode(edge.getEndPos()).get();
-						if (node.hasSignals()) {
-							continue;
-						}
-						if (node.getIncomingEdges(edge.getEndDir()).stream().allMatch(e -> e.isBlocked())) {
-							work.addAll(node.getOutgoingEdges(edge.getEndDir().back()));
-						}
+				work.clear();
+				graph.addOutgoingEdges(work, blockingNode, blockingDir);
+				while (!work.isEmpty()) {
+					int edge = work.poll();
+					if (graph.hasFlag(edge, RailGraph.BLOCKED)) {
+						continue;
+					}
+					graph.setFlag(edge, RailGraph.BLOCKED);
+					int node = graph.getEndNode(edge);
+					if (graph.getSignals(node) != 0) {
+						continue;
+					}
+					if (graph.allIncomingHaveFlag(node, graph.getEndDir(edge), RailGraph.BLOCKED)) {
+						graph.addOutgoingEdges(work, node, RailGraph.back(graph.getEndDir(edge)));
 					}
 				}
 
-				{
-					Queue<RailEdge> work = new ArrayDeque<>();
-					work.addAll(blockingNode.getIncomingEdges(blockingDir.back()));
-					while (!work.isEmpty()) {
-						RailEdge edge = work.poll();
-						if (edge.isBlocked()) {
-							continue;
-						}
-						edge.setBlocked(true);
-						RailNode node = map.getRailNode(edge.getStartPos()).get();
-						if (node.hasSignals()) {
-							continue;
-						}
-						if (node.getOutgoingEdges(edge.getStartDir()).stream().allMatch(e -> e.isBlocked())) {
-							work.addAll(node.getIncomingEdges(edge.getStartDir().back()));
-						}
+				work.clear();
+				graph.addIncomingEdges(work, blockingNode, RailGraph.back(blockingDir));
+				while (!work.isEmpty()) {
+					int edge = work.poll();
+					if (graph.hasFlag(edge, RailGraph.BLOCKED)) {
+						continue;
+					}
+					graph.setFlag(edge, RailGraph.BLOCKED);
+					int node = graph.getStartNode(edge);
+					if (graph.getSignals(node) != 0) {
+						continue;
+					}
+					if (graph.allOutgoingHaveFlag(node, graph.getStartDir(edge), RailGraph.BLOCKED)) {
+						graph.addIncomingEdges(work, node, RailGraph.back(graph.getStartDir(edge)));
 					}
 				}
-
-				// for (RailEdge startEdge :
-				// blockingNode.getOutgoingEdges(blockingDir)) {
-				// startEdge.setBlocked(true);
-				// RailNode node = map.getRailNode(startEdge.getEndPos()).get();
-				// Direction dir = startEdge.getEndDir();
-				// Collection<RailEdge> edges;
-				// while (!node.hasSignals() && ((edges =
-				// node.getOutgoingEdges(dir)).size() == 1)) {
-				// RailEdge edge = edges.iterator().next();
-				// if (edge.isBlocked()) {
-				// break;
-				// }
-				// edge.setBlocked(true);
-				// node = map.getRailNode(edge.getEndPos()).get();
-				// dir = edge.getEndDir();
-				// }
-				// }
-				//
-				// for (RailEdge startEdge :
-				// blockingNode.getIncomingEdges(blockingDir)) {
-				// startEdge.setBlocked(true);
-				// RailNode node = map.getRailNode(startEdge.getEndPos()).get();
-				// Direction dir = startEdge.getEndDir();
-				// Collection<RailEdge> edges;
-				// while (!node.hasSignals() && ((edges =
-				// node.getIncomingEdges(dir)).size() == 1)) {
-				// RailEdge edge = edges.iterator().next();
-				// if (edge.isBlocked()) {
-				// break;
-				// }
-				// edge.setBlocked(true);
-				// node = map.getRailNode(edge.getEndPos()).get();
-				// dir = edge.getEndDir();
-				// }
-				// }
 			}
-		});
+		}
 	}
 
-	private static void populateRailStationLogistics(WorldMap map) {
-		map.getRailNodes().cellSet().stream().filter(c -> c.getValue().getStation().isPresent()).forEach(c -> {
-			RailNode stationNode = c.getValue();
-			Direction stationDir = stationNode.getStation().get();
+	private static void populateRailStationLogistics(RailGraph graph, int[] nodes) {
+		RailGraph.EdgeQueue work = new RailGraph.EdgeQueue();
+		for (int stationNode : nodes) {
+			int stationDir = graph.getStation(stationNode);
+			if (stationDir == -1) {
+				continue;
+			}
 
-			{
-				Queue<RailEdge> work = new ArrayDeque<>();
-				work.addAll(stationNode.getOutgoingEdges(stationDir));
-				work.addAll(stationNode.getOutgoingEdges(stationDir.back()));
-				while (!work.isEmpty()) {
-					RailEdge edge = work.poll();
-					if (edge.isBlocked() || edge.isOutput()) {
-						continue;
-					}
-					edge.setOutput(true);
-					RailNode node = map.getRailNode(edge.getEndPos()).get();
-					if (node.getIncomingEdges(edge.getEndDir()).stream().allMatch(e -> e.isOutput())) {
-						work.addAll(node.getOutgoingEdges(edge.getEndDir().back()));
-					}
+			work.clear();
+			graph.addOutgoingEdges(work, stationNode, stationDir);
+			graph.addOutgoingEdges(work, stationNode, RailGraph.back(stationDir));
+			while (!work.isEmpty()) {
+				int edge = work.poll();
+				if (graph.hasFlag(edge, RailGraph.BLOCKED | RailGraph.OUTPUT)) {
+					continue;
+				}
+				graph.setFlag(edge, RailGraph.OUTPUT);
+				int node = graph.getEndNode(edge);
+				if (graph.allIncomingHaveFlag(node, graph.getEndDir(edge), RailGraph.OUTPUT)) {
+					graph.addOutgoingEdges(work, node, RailGraph.back(graph.getEndDir(edge)));
 				}
 			}
 
-			{
-				Queue<RailEdge> work = new ArrayDeque<>();
-				work.addAll(stationNode.getIncomingEdges(stationDir.back()));
-				while (!work.isEmpty()) {
-					RailEdge edge = work.poll();
-					if (edge.isBlocked() || edge.isInput()) {
-						continue;
-					}
-					edge.setInput(true);
-					RailNode node = map.getRailNode(edge.getStartPos()).get();
-					if (node.getOutgoingEdges(edge.getStartDir()).stream().allMatch(e -> e.isInput())) {
-						work.addAll(node.getIncomingEdges(edge.getStartDir().back()));
-					}
+			work.clear();
+			graph.addIncomingEdges(work, stationNode, RailGraph.back(stationDir));
+			while (!work.isEmpty()) {
+				int edge = work.poll();
+				if (graph.hasFlag(edge, RailGraph.BLOCKED | RailGraph.INPUT)) {
+					continue;
+				}
+				graph.setFlag(edge, RailGraph.INPUT);
+				int node = graph.getStartNode(edge);
+				if (graph.allOutgoingHaveFlag(node, graph.getStartDir(edge), RailGraph.INPUT)) {
+					graph.addIncomingEdges(work, node, RailGraph.back(graph.getStartDir(edge)));
 				}
 			}
-		});
+		}
 	}
 
-	private static void populateReverseLogistics(WorldMap map) {
-		Table<Integer, Integer, LogisticGridCell> logisticGrid = map.getLogisticGrid();
-		logisticGrid.cellSet().forEach(c -> {
+	private static void populateReverseLogistics(WorldMap map, List<Cell<Integer, Integer, LogisticGridCell>> cells) {
+		cells.forEach(c -> {
 			Point2D.Double pos = new Point2D.Double(c.getRowKey() / 2.0 + 0.25, c.getColumnKey() / 2.0 + 0.25);
 			LogisticGridCell cell = c.getValue();
 			cell.getMove().ifPresent(d -> {
@@ -866,130 +1822,96 @@ public class FBSR {
 		});
 	}
 
-	private static void populateTransitLogistics(WorldMap map, JSONObject options) {
-		Table<Integer, Integer, LogisticGridCell> logisticGrid = map.getLogisticGrid();
+	private static void populateTransitLogistics(WorldMap map, List<Cell<Integer, Integer, LogisticGridCell>> cells,
+			JSONObject options) {
+		// Cells are queued with the items they gained since they were last
+		// visited, so each cell is walked once per batch of new items
 		ArrayDeque<Entry<Point2D.Double, LogisticGridCell>> work = new ArrayDeque<>();
+		Map<LogisticGridCell, BitSet> pending = new HashMap<>();
 
-		logisticGrid.cellSet().stream().filter(c -> c.getValue().isTransitStart()).forEach(c -> {
-			Set<String> outputs = c.getValue().getOutputs().get();
-			for (String item : outputs) {
-				work.add(new SimpleEntry<>(map.getLogisticCellPosition(c), c.getValue()));
-				while (!work.isEmpty()) {
-					Entry<Point2D.Double, LogisticGridCell> pair = work.pop();
-					Point2D.Double cellPos = pair.getKey();
-					LogisticGridCell cell = pair.getValue();
-					if (cell.addTransit(item) && !cell.isBannedOutput(item)) {
-						cell.getMove().ifPresent(d -> {
-							Point2D.Double nextCellPos = d.offset(cellPos, 0.5);
-							map.getLogisticGridCell(nextCellPos)
-									.filter(nc -> !nc.isBlockTransit() && nc.acceptMoveFrom(d))
-									.ifPresent(next -> work.add(new SimpleEntry<>(nextCellPos, next)));
-						});
-						cell.getWarps().ifPresent(l -> {
-							for (Point2D.Double p : l) {
-								map.getLogisticGridCell(p)
-										.filter(nc -> !nc.isBlockTransit()
-												&& !(nc.getMove().isPresent() && cell.isBlockWarpFromIfMove())
-												&& !(cell.getMove().isPresent() && nc.isBlockWarpToIfMove()))
-										.ifPresent(next -> work.add(new SimpleEntry<>(p, next)));
-							}
-						});
-					}
-				}
-			}
+		cells.stream().filter(c -> c.getValue().isTransitStart()).forEach(c -> {
+			queueTransits(work, pending, map.getLogisticCellPosition(c), c.getValue(),
+					c.getValue().getOutputs().get());
 		});
-
-		if (options.optBoolean("debug-inputs")) {
-			logisticGrid.cellSet().stream().filter(c -> c.getValue().isTransitEnd()).forEach(c -> {
-				Set<String> inputs = c.getValue().getInputs().get();
-				for (String item : inputs) {
-					work.add(new SimpleEntry<>(map.getLogisticCellPosition(c), c.getValue()));
-					while (!work.isEmpty()) {
-						Entry<Point2D.Double, LogisticGridCell> pair = work.pop();
-						Point2D.Double cellPos = pair.getKey();
-						LogisticGridCell cell = pair.getValue();
-						if (cell.addTransit(item)) {
-							cell.getMovedFrom().ifPresent(l -> {
-								for (Direction d : l) {
-									Point2D.Double nextCellPos = d.offset(cellPos, 0.5);
-									map.getLogisticGridCell(nextCellPos).filter(nc -> !nc.isBlockTransit())
-											.ifPresent(next -> work.add(new SimpleEntry<>(nextCellPos, next)));
-								}
-							});
-							cell.getWarpedFrom().ifPresent(l -> {
-								for (Point2D.Double p : l) {
-									map.getLogisticGridCell(p).filter(nc -> !nc.isBlockTransit())
-											.ifPresent(next -> work.add(new SimpleEntry<>(p, next)));
-								}
-							});
-						}
-					}
+		while (!work.isEmpty()) {
+			Entry<Point2D.Double, LogisticGridCell> pair = work.pop();
+			Point2D.Double cellPos = pair.getKey();
+			LogisticGridCell cell = pair.getValue();
+			BitSet items = pending.remove(cell);
+			cell.getBannedOutputs().ifPresent(items::andNot);
+			if (items.isEmpty()) {
+				continue;
+			}
+			cell.getMove().ifPresent(d -> {
+				Point2D.Double nextCellPos = d.offset(cellPos, 0.5);
+				map.getLogisticGridCell(nextCellPos).filter(nc -> !nc.isBlockTransit() && nc.acceptMoveFrom(d))
+						.ifPresent(next -> queueTransits(work, pending, nextCellPos, next, items));
+			});
+			cell.getWarps().ifPresent(l -> {
+				for (Point2D.Double p : l) {
+					map.getLogisticGridCell(p)
+							.filter(nc -> !nc.isBlockTransit()
+									&& !(nc.getMove().isPresent() && cell.isBlockWarpFromIfMove())
+									&& !(cell.getMove().isPresent() && nc.isBlockWarpToIfMove()))
+							.ifPresent(next -> queueTransits(work, pending, p, next, items));
 				}
 			});
 		}
 
-	}
+		if (options.optBoolean("debug-inputs")) {
+			cells.stream().filter(c -> c.getValue().isTransitEnd()).forEach(c -> {
+				queueTransits(work, pending, map.getLogisticCellPosition(c), c.getValue(),
+						c.getValue().getInputs().get());
+			});
+			while (!work.isEmpty()) {
+				Entry<Point2D.Double, LogisticGridCell> pair = work.pop();
+				Point2D.Double cellPos = pair.getKey();
+				LogisticGridCell cell = pair.getValue();
+				BitSet items = pending.remove(cell);
+				cell.getMovedFrom().ifPresent(l -> {
+					for (Direction d : l) {
+						Point2D.Double nextCellPos = d.offset(cellPos, 0.5);
+						map.getLogisticGridCell(nextCellPos).filter(nc -> !nc.isBlockTransit())
+								.ifPresent(next -> queueTransits(work, pending, nextCellPos, next, items));
+					}
+				});
+				cell.getWarpedFrom().ifPresent(l -> {
+					for (Point2D.Double p : l) {
+						map.getLogisticGridCell(p).filter(nc -> !nc.isBlockTransit())
+								.ifPresent(next -> queueTransits(work, pending, p, next, items));
+					}
+				});
+			}
+		}
 
-	public static BufferedImage renderBlueprint(Blueprint blueprint, CommandReporting reporting)
-			throws JSONException, IOException {
-		return renderBlueprint(blueprint, reporting, new JSONObject());
 	}
 
-	public static BufferedImage renderBlueprint(Blueprint blueprint, CommandReporting reporting, JSONObject options)
-			throws JSONException, IOException {
-		System.out.println("Rendering " + blueprint.getLabel().orElse("(No Name)"));
-		long startMillis = System.currentTimeMillis();
-
+	/**
+	 * Populates the world map from the tuples, up to the logistics of each
+	 * entity. The logistics are analyzed as the rendering is built.
+	 */
+	private static void populateWorldMap(Blueprint blueprint, CommandReporting reporting, WorldMap map,
+			List<EntityRenderingTuple> entityRenderingTuples, List<TileRenderingTuple> tileRenderingTuples) {
 		DataTable table = FactorioData.getTable();
-		WorldMap map = new WorldMap();
 
 		boolean newFormatDetected = blueprint.getVersion().greaterOrEquals(Blueprint.VERSION_NEW_FORMAT);
 		map.setNewFormatDetected(newFormatDetected);
-		reporting.setNewFormatDetected(newFormatDetected);
-
-		List<EntityRenderingTuple> entityRenderingTuples = new ArrayList<EntityRenderingTuple>();
-		List<TileRenderingTuple> tileRenderingTuples = new ArrayList<TileRenderingTuple>();
-
-		for (BlueprintEntity entity : blueprint.getEntities()) {
-			EntityRenderingTuple tuple = new EntityRenderingTuple();
-			tuple.entity = entity;
-			tuple.factory = EntityRendererFactory.forName(entity.getName());
-			if (tuple.factory == EntityRendererFactory.UNKNOWN) {
-				if (options.optBoolean("debug-typeMapping")) {
-					reporting.addDebug("Unknown Entity! " + entity.getName());
-				}
-			}
-			entityRenderingTuples.add(tuple);
-		}
-		for (BlueprintTile tile : blueprint.getTiles()) {
-			TileRenderingTuple tuple = new TileRenderingTuple();
-			tuple.tile = tile;
-			tuple.factory = TileRendererFactory.forName(tile.getName());
-			if (tuple.factory == TileRendererFactory.UNKNOWN) {
-				if (options.optBoolean("debug-typeMapping")) {
-					reporting.addDebug("Unknown Tile! " + tile.getName());
-				}
-			}
-			tileRenderingTuples.add(tuple);
+		synchronized (reporting) {
+			reporting.setNewFormatDetected(newFormatDetected);
 		}
 
-		if (blueprint.getVersion().greaterOrEquals(new MapVersion(0, 18, 37, 3)))
-			alignTileRenderingTuplesToGrid(tileRenderingTuples);
-		else // legacy
-			alignRenderingTuplesToGrid(entityRenderingTuples, tileRenderingTuples);
-
 		entityRenderingTuples.forEach(t -> {
 			try {
 				t.factory.populateWorldMap(map, table, t.entity);
 			} catch (Exception e) {
-				reporting.addException(e);
+				addException(reporting, e);
 			}
 		});
 		tileRenderingTuples.forEach(t -> {
 			try {
 				t.factory.populateWorldMap(map, table, t.tile);
 			} catch (Exception e) {
-				reporting.addException(e);
+				addException(reporting, e);
 			}
 		});
 
@@ -997,94 +1919,235 @@ public class FBSR {
 			try {
 				t.factory.populateLogistics(map, table, t.entity);
 			} catch (Exception e) {
-				reporting.addException(e);
+				addException(reporting, e);
 			}
 		});
+	}
 
-		populateReverseLogistics(map);
-		populateTransitLogistics(map, options);
-
-		populateRailBlocking(map);
-		populateRailStationLogistics(map);
+	/**
+	 * Adds the items to the transits of the cell, and queues the cell with the
+	 * items it did not already have.
+	 */
+	private static void queueTransits(ArrayDeque<Entry<Point2D.Double, LogisticGridCell>> work,
+			Map<LogisticGridCell, BitSet> pending, Point2D.Double cellPos, LogisticGridCell cell, BitSet items) {
+		BitSet added = cell.addTransits(items);
+		if (added.isEmpty()) {
+			return;
+		}
+		BitSet cellPending = pending.get(cell);
+		if (cellPending == null) {
+			pending.put(cell, added);
+			work.add(new SimpleEntry<>(cellPos, cell));
+		} else {
+			cellPending.or(added);
+		}
+	}
 
-		List<Renderer> renderers = new ArrayList<>();
+	/**
+	 * Stable LSD radix sort of non-negative keys, returning the indices of the
+	 * keys in ascending order. Digits that are equal across all keys are skipped.
+	 */
+	private static int[] radixSortOrder(long[] keys) {
+		int count = keys.length;
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		long[] sortedKeys = keys.clone();
+		long[] keyBuffer = new long[count];
+		int[] orderBuffer = new int[count];
+		int[] buckets = new int[RADIX_BUCKETS + 1];
+
+		for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+			Arrays.fill(buckets, 0);
+			for (int i = 0; i < count; i++) {
+				buckets[(int) ((sortedKeys[i] >>> shift) & (RADIX_BUCKETS - 1)) + 1]++;
+			}
+			if (count == 0 || buckets[(int) ((sortedKeys[0] >>> shift) & (RADIX_BUCKETS - 1)) + 1] == count) {
+				continue;
+			}
+			for (int b = 1; b <= RADIX_BUCKETS; b++) {
+				buckets[b] += buckets[b - 1];
+			}
+			for (int i = 0; i < count; i++) {
+				int dest = buckets[(int) ((sortedKeys[i] >>> shift) & (RADIX_BUCKETS - 1))]++;
+				keyBuffer[dest] = sortedKeys[i];
+				orderBuffer[dest] = order[i];
+			}
+			long[] swapKeys = sortedKeys;
+			sortedKeys = keyBuffer;
+			keyBuffer = swapKeys;
+			int[] swapOrder = order;
+			order = orderBuffer;
+			orderBuffer = swapOrder;
+		}
+		return order;
+	}
 
-		entityRenderingTuples.forEach(t -> {
-			try {
-				t.factory.createRenderers(renderers::add, map, table, t.entity);
-			} catch (Exception e) {
-				reporting.addException(e);
+	/**
+	 * Draws again the blocks of the image that any of the world bounds (padded
+	 * by {@link #RENDERER_OVERDRAW_MARGIN}) touch, each run of blocks in a row
+	 * as one clipped region.
+	 */
+	private static void redrawBounds(CommandReporting reporting, BufferedImage image, RenderLayout layout,
+			WorldRendering rendering, JSONObject options, List<Rectangle2D.Double> worldBounds)
+			throws JSONException, IOException {
+		int blocksX = (layout.imageWidth + REDRAW_BLOCK_SIZE - 1) / REDRAW_BLOCK_SIZE;
+		int blocksY = (layout.imageHeight + REDRAW_BLOCK_SIZE - 1) / REDRAW_BLOCK_SIZE;
+		BitSet dirtyBlocks = new BitSet(blocksX * blocksY);
+		for (Rectangle2D.Double bounds : worldBounds) {
+			Rectangle pixels = layout.toPixels(bounds, RENDERER_OVERDRAW_MARGIN);
+			if (pixels.isEmpty()) {
+				continue;
 			}
-		});
-		tileRenderingTuples.forEach(t -> {
-			try {
-				t.factory.createRenderers(renderers::add, map, table, t.tile);
-			} catch (Exception e) {
-				reporting.addException(e);
+			int minBlockX = pixels.x / REDRAW_BLOCK_SIZE;
+			int maxBlockX = (pixels.x + pixels.width - 1) / REDRAW_BLOCK_SIZE;
+			for (int blockY = pixels.y / REDRAW_BLOCK_SIZE; blockY <= (pixels.y + pixels.height - 1)
+					/ REDRAW_BLOCK_SIZE; blockY++) {
+				dirtyBlocks.set(blockY * blocksX + minBlockX, blockY * blocksX + maxBlockX + 1);
 			}
-		});
+		}
 
-		entityRenderingTuples.forEach(t -> {
-			try {
-				t.factory.createModuleIcons(renderers::add, map, table, t.entity);
-			} catch (Exception e) {
-				reporting.addException(e);
+		Set<Renderer> failedRenderers = new HashSet<>();
+		try (RenderScheduler.Reservation reservation = reserveRender(layout, 0, options)) {
+			int start = dirtyBlocks.nextSetBit(0);
+			while (start >= 0) {
+				int blockY = start / blocksX;
+				int end = Math.min(dirtyBlocks.nextClearBit(start), (blockY + 1) * blocksX);
+				Rectangle region = new Rectangle((start - blockY * blocksX) * REDRAW_BLOCK_SIZE,
+						blockY * REDRAW_BLOCK_SIZE, (end - start) * REDRAW_BLOCK_SIZE, REDRAW_BLOCK_SIZE)
+								.intersection(new Rectangle(0, 0, layout.imageWidth, layout.imageHeight));
+
+				Graphics2D g = image.createGraphics();
+				g.clipRect(region.x, region.y, region.width, region.height);
+				drawRegion(reporting, g, region, layout, rendering, rendering.borderPanels, options,
+						failedRenderers);
+				g.dispose();
+
+				start = dirtyBlocks.nextSetBit(end);
 			}
-		});
+		}
+	}
 
-		entityRenderingTuples.forEach(t -> {
-			try {
-				t.factory.createWireConnections(renderers::add, map, table, t.entity);
-			} catch (Exception e) {
-				reporting.addException(e);
+	/**
+	 * Splits the region into horizontal bands and renders each band on the
+	 * ForkJoin pool with its own clipped copy of the graphics context. Only
+	 * renderers whose bounds (padded by {@link #RENDERER_OVERDRAW_MARGIN}) touch
+	 * a band are drawn into it, in the same sorted order as the serial path.
+	 */
+	private static void renderBands(CommandReporting reporting, Graphics2D g, AffineTransform noXform,
+			GraphicsState state, List<Renderer> sortedRenderers, int bandCount, Rectangle region,
+			RenderLayout layout, boolean debugBounds, Set<Renderer> failedRenderers) {
+		int bandHeight = (region.height + bandCount - 1) / bandCount;
+
+		List<ForkJoinTask<Map<Integer, Exception>>> tasks = new ArrayList<>();
+		for (int bandY = region.y; bandY < region.y + region.height; bandY += bandHeight) {
+			int pixelHeight = Math.min(bandHeight, region.y + region.height - bandY);
+			Rectangle2D.Double bandBounds = layout.toWorldBounds(new Rectangle(region.x, bandY, region.width,
+					pixelHeight), RENDERER_OVERDRAW_MARGIN);
+
+			// Graphics state is copied on this thread, then clipped in image space
+			Graphics2D bandG = (Graphics2D) g.create();
+			bandG.setTransform(noXform);
+			bandG.clipRect(region.x, bandY, region.width, pixelHeight);
+
+			tasks.add(ForkJoinPool.commonPool().submit(() -> {
+				Map<Integer, Exception> exceptions = new LinkedHashMap<>();
+				try {
+					for (int i = 0; i < sortedRenderers.size(); i++) {
+						Renderer r = sortedRenderers.get(i);
+						if (!isInRegion(r, bandBounds)) {
+							continue;
+						}
+						try {
+							state.restore(bandG);
+							r.render(bandG);
+
+							if (debugBounds) {
+								bandG.setStroke(new BasicStroke(1f / 32f));
+								bandG.setColor(Color.magenta);
+								bandG.draw(r.bounds);
+							}
+						} catch (Exception e) {
+							exceptions.put(i, e);
+						}
+					}
+				} finally {
+					bandG.dispose();
+				}
+				return exceptions;
+			}));
+		}
+
+		// A failing renderer fails in every band it touches, report it once
+		Map<Integer, Exception> exceptions = new TreeMap<>();
+		for (ForkJoinTask<Map<Integer, Exception>> task : tasks) {
+			task.join().forEach(exceptions::putIfAbsent);
+		}
+		exceptions.forEach((i, e) -> {
+			if (failedRenderers.add(sortedRenderers.get(i))) {
+				addException(reporting, e);
 			}
 		});
+	}
 
-		showLogisticGrid(renderers::add, table, map, options);
-		showRailLogistics(renderers::add, table, map, options);
-
-		ArrayListMultimap<Direction, PanelRenderer> borderPanels = ArrayListMultimap.create();
-		if (options.optBoolean("show-info-panels", true)) {
-			blueprint.getLabel().ifPresent(label -> {
-				borderPanels.put(Direction.NORTH, createHeaderPanel(label));
-			});
-			borderPanels.put(Direction.SOUTH, createFooterPanel());
+	public static BufferedImage renderBlueprint(Blueprint blueprint, CommandReporting reporting)
+			throws JSONException, IOException {
+		return renderBlueprint(blueprint, reporting, new JSONObject());
+	}
 
-			Map<String, Double> totalItems = generateTotalItems(table, blueprint);
-			borderPanels.put(Direction.EAST, createItemListPanel(table, "TOTAL", totalItems));
-			borderPanels.put(Direction.EAST,
-					createItemListPanel(table, "RAW", generateTotalRawItems(table, table.getRecipes(), totalItems)));
+	/**
+	 * Renders the blueprint, or returns its image from the render cache. The
+	 * image may be shared with other callers through the cache, so it is read
+	 * only: copy it before drawing on it. The render budget is released on
+	 * return, so callers that keep the image while encoding or uploading it use
+	 * {@link #renderBlueprintReserved} instead.
+	 */
+	public static BufferedImage renderBlueprint(Blueprint blueprint, CommandReporting reporting, JSONObject options)
+			throws JSONException, IOException {
+		try (ReservedImage image = renderBlueprintReserved(blueprint, reporting, options)) {
+			return image.getImage();
 		}
+	}
 
-		if (options.optBoolean("debug-placement")) {
-			entityRenderingTuples.forEach(t -> {
-				Point2D.Double pos = t.entity.getPosition();
-				renderers.add(new Renderer(Layer.DEBUG_P, pos) {
-					@Override
-					public void render(Graphics2D g) {
-						g.setColor(Color.cyan);
-						g.fill(new Ellipse2D.Double(pos.x - 0.1, pos.y - 0.1, 0.2, 0.2));
-						Stroke ps = g.getStroke();
-						g.setStroke(new BasicStroke(3f / 32f));
-						g.setColor(Color.green);
-						g.draw(new Line2D.Double(pos, t.entity.getDirection().offset(pos, 0.3)));
-						g.setStroke(ps);
-					}
-				});
-			});
-			tileRenderingTuples.forEach(t -> {
-				Point2D.Double pos = t.tile.getPosition();
-				renderers.add(new Renderer(Layer.DEBUG_P, pos) {
-					@Override
-					public void render(Graphics2D g) {
-						g.setColor(Color.cyan);
-						g.fill(new Ellipse2D.Double(pos.x - 0.1, pos.y - 0.1, 0.2, 0.2));
-					}
-				});
-			});
+	/**
+	 * Renders the blueprint like {@link #renderBlueprint}, keeping the render
+	 * budget reserved for the image until the result is closed. Images from the
+	 * render cache hold no reservation, as the cache has its own budget.
+	 */
+	public static ReservedImage renderBlueprintReserved(Blueprint blueprint, CommandReporting reporting,
+			JSONObject options) throws JSONException, IOException {
+		System.out.println("Rendering " + blueprint.getLabel().orElse("(No Name)"));
+		long startMillis = System.currentTimeMillis();
+
+		// The level border depends on what was reported before, so only clean
+		// renders are cached or served from the cache
+		RenderCache cache = renderCache;
+		String cacheKey = null;
+		if (cache != null && getLevel(reporting) == Level.INFO) {
+			cacheKey = RenderCache.createKey(blueprint, options);
+			Optional<BufferedImage> cached = cache.get(cacheKey);
+			if (cached.isPresent()) {
+				boolean newFormatDetected = blueprint.getVersion().greaterOrEquals(Blueprint.VERSION_NEW_FORMAT);
+				synchronized (reporting) {
+					reporting.setNewFormatDetected(newFormatDetected);
+				}
+
+				long endMillis = System.currentTimeMillis();
+				System.out.println("\tRender Cache Hit " + (endMillis - startMillis) + " ms");
+				blueprint.setRenderTime(endMillis - startMillis);
+				return new ReservedImage(cached.get(), null);
+			}
 		}
+		int exceptionCount = getExceptionCount(reporting);
+
+		WorldRendering rendering = createWorldRendering(blueprint, reporting, options);
+		ReservedImage result = applyRendering(reporting, (int) Math.round(tileSize), rendering, options);
 
-		BufferedImage result = applyRendering(reporting, (int) Math.round(tileSize), renderers, borderPanels, options);
+		if (cacheKey != null && getLevel(reporting) == Level.INFO
+				&& getExceptionCount(reporting) == exceptionCount) {
+			cache.put(cacheKey, result.getImage());
+		}
 
 		long endMillis = System.currentTimeMillis();
 		System.out.println("\tRender Time " + (endMillis - startMillis) + " ms");
@@ -1093,13 +2156,128 @@ public class FBSR {
 		return result;
 	}
 
+	/**
+	 * Renders the blueprint at full resolution without the
+	 * {@link #MAX_WORLD_RENDER_PIXELS} downscale, writing it as a PNG to the
+	 * stream one strip at a time so that only a strip is held in memory. Images
+	 * of more than maxPixels are rejected before anything is written.
+	 */
+	public static void renderBlueprintTiled(Blueprint blueprint, CommandReporting reporting, JSONObject options,
+			long maxPixels, OutputStream out) throws JSONException, IOException {
+		System.out.println("Rendering " + blueprint.getLabel().orElse("(No Name)"));
+		long startMillis = System.currentTimeMillis();
+
+		WorldRendering rendering = createWorldRendering(blueprint, reporting, options);
+		applyTiledRendering(reporting, (int) Math.round(tileSize), rendering, options, maxPixels, out);
+
+		long endMillis = System.currentTimeMillis();
+		System.out.println("\tRender Time " + (endMillis - startMillis) + " ms");
+		blueprint.setRenderTime(endMillis - startMillis);
+	}
+
+	/**
+	 * Renders the pages like {@link #renderBlueprint}, up to the configured
+	 * number at a time, and hands each image to the consumer in page order. At
+	 * most that many pages are rendered ahead of the consumer, so a book is not
+	 * held in memory at once. A page that fails is skipped, and its exception is
+	 * reported in page order. An exception of the consumer stops the book.
+	 */
+	public static void renderBook(List<Blueprint> blueprints, CommandReporting reporting, JSONObject options,
+			BookPageConsumer consumer) throws IOException {
+		ExecutorService executor = blueprints.size() > 1 ? bookRenderExecutor : null;
+		int ahead = executor != null ? bookRenderThreads : 1;
+		List<CompletableFuture<ReservedImage>> futures = new ArrayList<>();
+		int consumed = 0;
+		try {
+			for (int i = 0; i < blueprints.size(); i++) {
+				while (futures.size() < blueprints.size() && futures.size() < i + ahead) {
+					futures.add(submitBookPage(blueprints.get(futures.size()), reporting, options, executor));
+				}
+
+				ReservedImage image;
+				try {
+					image = futures.get(i).get();
+				} catch (ExecutionException e) {
+					consumed = i + 1;
+					if (e.getCause() instanceof Error) {
+						throw (Error) e.getCause();
+					}
+					addException(reporting, (Exception) e.getCause());
+					continue;
+				}
+				consumed = i + 1;
+				try (ReservedImage page = image) {
+					consumer.accept(i, page.getImage());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			addException(reporting, e);
+		} finally {
+			// Pages the consumer did not get release their budget once rendered
+			for (int i = consumed; i < futures.size(); i++) {
+				futures.get(i).thenAccept(ReservedImage::close);
+			}
+		}
+	}
+
+	/**
+	 * Renders only the given rectangle of the world, visiting just the renderers
+	 * that the index finds in it. Border panels are left out, otherwise the
+	 * result matches the same area of a full render at that scale. The image is
+	 * reserved from the render budget like {@link #renderBlueprintReserved}.
+	 */
+	public static ReservedImage renderWorldRegion(WorldRendering rendering, CommandReporting reporting,
+			Rectangle2D.Double worldRegion, float worldRenderScale, JSONObject options)
+			throws JSONException, IOException {
+		RenderLayout layout = new RenderLayout();
+		layout.worldBounds = computeWorldBounds(rendering.bounds);
+		layout.centerBounds = layout.worldBounds;
+		layout.totalBounds = worldRegion;
+		layout.worldRenderScale = worldRenderScale;
+		layout.imageWidth = Math.max(1, (int) (worldRegion.getWidth() * worldRenderScale * tileSize));
+		layout.imageHeight = Math.max(1, (int) (worldRegion.getHeight() * worldRenderScale * tileSize));
+
+		RenderScheduler.Reservation reservation = reserveRender(layout, layout.imageHeight, options);
+		try {
+			BufferedImage image = new BufferedImage(layout.imageWidth, layout.imageHeight,
+					BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = image.createGraphics();
+			drawRegion(reporting, g, new Rectangle(0, 0, layout.imageWidth, layout.imageHeight), layout, rendering,
+					ArrayListMultimap.create(), options, new HashSet<>());
+			g.dispose();
+			return new ReservedImage(image, reservation);
+		} catch (RuntimeException | Error e) {
+			if (reservation != null) {
+				reservation.close();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Reserves the image buffers of a render from the scheduler: the canvas of
+	 * the given height, and a shadow strip per band.
+	 */
+	private static RenderScheduler.Reservation reserveRender(RenderLayout layout, int canvasHeight,
+			JSONObject options) throws IOException {
+		RenderScheduler scheduler = renderScheduler;
+		if (scheduler == null) {
+			return null;
+		}
+		int bandCount = Math.max(1, Math.min(options.optInt("parallel-bands", 1), layout.imageHeight));
+		long rowBytes = layout.imageWidth * 4L;
+		long bytes = rowBytes * canvasHeight + rowBytes * Math.min(SHADOW_STRIP_HEIGHT, layout.imageHeight) * bandCount;
+		return scheduler.reserve(bytes);
+	}
+
 	private static void showLogisticGrid(Consumer<Renderer> register, DataTable table, WorldMap map,
 			JSONObject options) {
 		Table<Integer, Integer, LogisticGridCell> logisticGrid = map.getLogisticGrid();
 		logisticGrid.cellSet().forEach(c -> {
 			Point2D.Double pos = new Point2D.Double(c.getRowKey() / 2.0 + 0.25, c.getColumnKey() / 2.0 + 0.25);
 			LogisticGridCell cell = c.getValue();
-			cell.getTransits().ifPresent(s -> {
+			cell.getTransits().map(map.getItemRegistry()::toNames).ifPresent(s -> {
 				if (s.isEmpty()) {
 					return;
 				}
@@ -1272,4 +2450,187 @@ public class FBSR {
 			});
 		}
 	}
+
+	/**
+	 * Draw order: layer, then minY, then minX, ties kept in creation order. Each
+	 * renderer is packed into one long key (layer ordinal, dense rank of minY,
+	 * dense rank of minX) so the sort never touches the renderers again.
+	 */
+	private static int[] sortOrder(List<Renderer> renderers) {
+		int count = renderers.size();
+		double[] minYs = new double[count];
+		double[] minXs = new double[count];
+		for (int i = 0; i < count; i++) {
+			Rectangle2D.Double bounds = renderers.get(i).getBounds();
+			minYs[i] = bounds.getMinY();
+			minXs[i] = bounds.getMinX();
+		}
+		int[] yRanks = denseRanks(minYs);
+		int[] xRanks = denseRanks(minXs);
+
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = ((long) renderers.get(i).getLayer().ordinal() << SORT_KEY_LAYER_SHIFT)
+					| ((long) yRanks[i] << SORT_KEY_RANK_BITS) | xRanks[i];
+		}
+		return radixSortOrder(keys);
+	}
+
+	/**
+	 * Starts rendering the page on the executor, or renders it now if there is
+	 * none.
+	 */
+	private static CompletableFuture<ReservedImage> submitBookPage(Blueprint blueprint, CommandReporting reporting,
+			JSONObject options, ExecutorService executor) {
+		Supplier<ReservedImage> task = () -> {
+			try {
+				return renderBlueprintReserved(blueprint, reporting, options);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		};
+		return CompletableFuture.supplyAsync(task, executor != null ? executor : Runnable::run);
+	}
+
+	/**
+	 * Updates the rendering after the given entities of its blueprint were
+	 * edited in place (renamed, rotated or reconfigured in their JSON), and
+	 * returns its image. Only the entities and tiles near the edited ones get
+	 * new renderers, only the logistic components through them are analyzed
+	 * again, and unless the layout of the image changed only the parts of the
+	 * image that may look different are drawn again. The image is updated in
+	 * place. If the update throws, the rendering keeps its previous state, and
+	 * the edits are applied again along with those of the next update.
+	 */
+	public static BufferedImage updateIncrementalRendering(IncrementalRendering incremental,
+			Collection<BlueprintEntity> editedEntities, CommandReporting reporting)
+			throws JSONException, IOException {
+		WorldRendering previous = incremental.rendering;
+		System.out.println("Updating " + incremental.blueprint.getLabel().orElse("(No Name)"));
+		long startMillis = System.currentTimeMillis();
+
+		Set<BlueprintEntity> edited = incremental.pendingEdits;
+		edited.addAll(editedEntities);
+
+		// Edits do not move entities, so the aligned positions are kept
+		for (BlueprintEntity entity : edited) {
+			Point2D.Double pos = entity.getPosition();
+			entity.reload();
+			entity.setPosition(pos.x, pos.y);
+			if (entity.getLoadError() != null) {
+				synchronized (reporting) {
+					reporting.addException(entity.getLoadError());
+				}
+			}
+		}
+
+		// The tuples are copied, so that the previous rendering is kept whole
+		// until the new one is built
+		List<EntityRenderingTuple> entityRenderingTuples = new ArrayList<>(incremental.entityRenderingTuples.size());
+		ChunkedBitGrid dirtyTiles = new ChunkedBitGrid(1);
+		for (EntityRenderingTuple p : incremental.entityRenderingTuples) {
+			EntityRenderingTuple t = new EntityRenderingTuple();
+			t.entity = p.entity;
+			t.factory = p.factory;
+			t.renderers = p.renderers;
+			t.moduleIcons = p.moduleIcons;
+			entityRenderingTuples.add(t);
+			if (edited.contains(t.entity)) {
+				t.factory = EntityRendererFactory.forName(t.entity.getName());
+				Point2D.Double pos = t.entity.getPosition();
+				Rectangle2D.Double bounds = new Rectangle2D.Double(pos.x, pos.y, 0, 0);
+				t.renderers.forEach(r -> bounds.add(r.bounds));
+				t.moduleIcons.forEach(r -> bounds.add(r.bounds));
+				markDirtyTiles(dirtyTiles, bounds, EDIT_INFLUENCE_MARGIN);
+			}
+		}
+		List<TileRenderingTuple> tileRenderingTuples = new ArrayList<>(incremental.tileRenderingTuples.size());
+		for (TileRenderingTuple p : incremental.tileRenderingTuples) {
+			TileRenderingTuple t = new TileRenderingTuple();
+			t.tile = p.tile;
+			t.factory = p.factory;
+			t.renderers = p.renderers;
+			tileRenderingTuples.add(t);
+		}
+
+		// Recreated renderers may look different both where they were and where
+		// they are now
+		List<Rectangle2D.Double> dirtyBounds = new ArrayList<>();
+		for (EntityRenderingTuple t : entityRenderingTuples) {
+			if (isDirtyTile(dirtyTiles, t.entity.getPosition())) {
+				addRendererBounds(dirtyBounds, t.renderers);
+				addRendererBounds(dirtyBounds, t.moduleIcons);
+				t.renderers = null;
+				t.moduleIcons = null;
+			}
+		}
+		for (TileRenderingTuple t : tileRenderingTuples) {
+			if (isDirtyTile(dirtyTiles, t.tile.getPosition())) {
+				addRendererBounds(dirtyBounds, t.renderers);
+				t.renderers = null;
+			}
+		}
+
+		// Only the logistic components through dirty tiles are analyzed again, and
+		// the cells reused from the previous map keep its item IDs
+		WorldMap map = new WorldMap(incremental.map.getItemRegistry());
+		populateWorldMap(incremental.blueprint, reporting, map, entityRenderingTuples, tileRenderingTuples);
+		List<List<Cell<Integer, Integer, LogisticGridCell>>> logisticBatches = partitionDirtyLogisticGrid(map,
+				incremental.map, dirtyTiles, dirtyBounds);
+		WorldRendering rendering = buildWorldRendering(incremental.blueprint, reporting, incremental.options, map,
+				entityRenderingTuples, tileRenderingTuples, logisticBatches);
+		// The recreated renderers, and the rails and wires that changed with them
+		for (EntityRenderingTuple t : entityRenderingTuples) {
+			if (isDirtyTile(dirtyTiles, t.entity.getPosition())) {
+				addRendererBounds(dirtyBounds, t.renderers);
+				addRendererBounds(dirtyBounds, t.moduleIcons);
+			}
+		}
+		for (TileRenderingTuple t : tileRenderingTuples) {
+			if (isDirtyTile(dirtyTiles, t.tile.getPosition())) {
+				addRendererBounds(dirtyBounds, t.renderers);
+			}
+		}
+		addChangedRailBounds(incremental.map, map, dirtyBounds);
+		addChangedWireBounds(incremental.map.getWires(), map.getWires(), dirtyBounds);
+
+		RenderLayout layout = computeLayout((int) Math.round(tileSize), rendering.bounds, rendering.borderPanels,
+				incremental.options, true);
+		Level level = getLevel(reporting);
+
+		// A new level changes the border around the whole world
+		if (!incremental.imageStale && layout.matches(incremental.layout) && level == incremental.level) {
+			if (!Objects.equals(previous.totalItems, rendering.totalItems)) {
+				Rectangle2D.Double center = layout.centerBounds;
+				Rectangle2D.Double total = layout.totalBounds;
+				dirtyBounds.add(new Rectangle2D.Double(center.getMaxX(), total.getMinY(),
+						total.getMaxX() - center.getMaxX(), total.getHeight()));
+			}
+			System.out.println("\t" + dirtyBounds.size() + " dirty bounds");
+			// The image is updated in place
+			incremental.imageStale = true;
+			redrawBounds(reporting, incremental.image.getImage(), layout, rendering, incremental.options,
+					dirtyBounds);
+			incremental.imageStale = false;
+		} else {
+			System.out.println("\t" + layout.imageWidth + "x" + layout.imageHeight + " (" + layout.worldRenderScale
+					+ ", redrawn)");
+			ReservedImage image = drawImage(reporting, layout, rendering, incremental.options);
+			incremental.image.close();
+			incremental.image = image;
+			incremental.imageStale = false;
+		}
+		incremental.map = map;
+		incremental.entityRenderingTuples = entityRenderingTuples;
+		incremental.tileRenderingTuples = tileRenderingTuples;
+		incremental.rendering = rendering;
+		incremental.layout = layout;
+		incremental.level = level;
+		edited.clear();
+
+		long endMillis = System.currentTimeMillis();
+		System.out.println("\tRender Time " + (endMillis - startMillis) + " ms");
+		incremental.blueprint.setRenderTime(endMillis - startMillis);
+		return incremental.image.getImage();
+	}
 }
@@ -0,0 +1,55 @@
+package com.demod.fbsr;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.demod.factorio.DataTable;
+
+/**
+ * Interns item names as small int IDs, so that sets of items can be kept as
+ * bitsets. The items of the data table are numbered in name order when FBSR
+ * initializes, and shared by every registry. Names that are not in the data
+ * table (such as filters for items of missing mods) are numbered as they are
+ * first seen by the registry of the render, and dropped along with it.
+ */
+public class ItemRegistry {
+	private static volatile NameInterner tableItems = new NameInterner();
+
+	public static void initialize(DataTable table) {
+		NameInterner items = new NameInterner();
+		new TreeSet<>(table.getItems().keySet()).forEach(items::intern);
+		tableItems = items;
+	}
+
+	private final NameInterner items = new NameInterner(tableItems);
+
+	public int getId(String name) {
+		return items.intern(name);
+	}
+
+	public String getName(int id) {
+		return items.getName(id);
+	}
+
+	public int getSize() {
+		return items.getSize();
+	}
+
+	public BitSet toBitSet(Collection<String> names) {
+		BitSet ret = new BitSet();
+		for (String name : names) {
+			ret.set(getId(name));
+		}
+		return ret;
+	}
+
+	public SortedSet<String> toNames(BitSet bits) {
+		SortedSet<String> ret = new TreeSet<>();
+		for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+			ret.add(getName(id));
+		}
+		return ret;
+	}
+}
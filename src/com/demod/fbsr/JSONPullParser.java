@@ -0,0 +1,252 @@
+package com.demod.fbsr;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pull tokenizer of JSON text, read from a stream as it is needed. Values can
+ * be walked token by token, or read whole into {@link JSONObject} and
+ * {@link JSONArray} trees where only a part of the document is wanted as a
+ * tree.
+ */
+public class JSONPullParser implements Closeable {
+	public static enum Token {
+		START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END
+	}
+
+	private final Reader reader;
+	private final char[] buffer;
+	private int position = 0;
+	private int limit = 0;
+
+	private final StringBuilder text = new StringBuilder();
+
+	// Open containers, true for objects
+	private boolean[] objects = new boolean[16];
+	private int depth = 0;
+	private boolean expectName = false;
+
+	public JSONPullParser(Reader reader) {
+		this(reader, new char[8192]);
+	}
+
+	/**
+	 * Reads through the given buffer, which may be reused once the parser is
+	 * done.
+	 */
+	public JSONPullParser(Reader reader, char[] buffer) {
+		this.reader = reader;
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void endValue() {
+		expectName = depth > 0 && objects[depth - 1];
+	}
+
+	/**
+	 * The text of the last {@link Token#NAME}, {@link Token#STRING} or
+	 * {@link Token#NUMBER}.
+	 */
+	public String getText() {
+		return text.toString();
+	}
+
+	/**
+	 * The next token, or {@link Token#END} at the end of the text. Commas and
+	 * colons are skipped.
+	 */
+	public Token next() throws IOException {
+		int c = nextClean();
+		while (c == ',' || c == ':') {
+			c = nextClean();
+		}
+		switch (c) {
+		case -1:
+			if (depth > 0) {
+				throw new JSONException("Unterminated JSON text");
+			}
+			return Token.END;
+		case '{':
+			push(true);
+			return Token.START_OBJECT;
+		case '[':
+			push(false);
+			return Token.START_ARRAY;
+		case '}':
+		case ']':
+			if (depth == 0 || objects[depth - 1] != (c == '}')) {
+				throw new JSONException("Unexpected '" + (char) c + "'");
+			}
+			depth--;
+			endValue();
+			return c == '}' ? Token.END_OBJECT : Token.END_ARRAY;
+		case '"':
+			readString();
+			if (expectName) {
+				expectName = false;
+				return Token.NAME;
+			}
+			endValue();
+			return Token.STRING;
+		default:
+			readLiteral(c);
+			endValue();
+			switch (text.toString()) {
+			case "true":
+				return Token.TRUE;
+			case "false":
+				return Token.FALSE;
+			case "null":
+				return Token.NULL;
+			default:
+				return Token.NUMBER;
+			}
+		}
+	}
+
+	private int nextChar() throws IOException {
+		if (position == limit) {
+			limit = reader.read(buffer);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	private int nextClean() throws IOException {
+		int c;
+		do {
+			c = nextChar();
+		} while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+		return c;
+	}
+
+	private void push(boolean object) {
+		if (depth == objects.length) {
+			objects = Arrays.copyOf(objects, depth * 2);
+		}
+		objects[depth++] = object;
+		expectName = object;
+	}
+
+	private void readLiteral(int c) throws IOException {
+		text.setLength(0);
+		while (c != -1 && c != ',' && c != ':' && c != '}' && c != ']' && c != '"' && c > ' ') {
+			text.append((char) c);
+			c = nextChar();
+		}
+		if (text.length() == 0) {
+			throw new JSONException("Unexpected '" + (char) c + "'");
+		}
+		// The character ending the literal is read again by next()
+		if (c != -1) {
+			position--;
+		}
+	}
+
+	/**
+	 * Reads the rest of the value that starts with the token just returned by
+	 * {@link #next()}, as a {@link JSONObject}, {@link JSONArray},
+	 * {@link JSONObject#NULL} or the value org.json would give the text.
+	 */
+	public Object readValue(Token token) throws IOException {
+		switch (token) {
+		case START_OBJECT: {
+			JSONObject ret = new JSONObject();
+			for (token = next(); token == Token.NAME; token = next()) {
+				String name = getText();
+				ret.put(name, readValue(next()));
+			}
+			if (token != Token.END_OBJECT) {
+				throw new JSONException("Expected a key, found " + token);
+			}
+			return ret;
+		}
+		case START_ARRAY: {
+			JSONArray ret = new JSONArray();
+			for (token = next(); token != Token.END_ARRAY; token = next()) {
+				ret.put(readValue(token));
+			}
+			return ret;
+		}
+		case STRING:
+			return getText();
+		case NUMBER:
+			return JSONObject.stringToValue(getText());
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case NULL:
+			return JSONObject.NULL;
+		default:
+			throw new JSONException("Expected a value, found " + token);
+		}
+	}
+
+	private void readString() throws IOException {
+		text.setLength(0);
+		while (true) {
+			int c = nextChar();
+			switch (c) {
+			case -1:
+				throw new JSONException("Unterminated string");
+			case '"':
+				return;
+			case '\\':
+				c = nextChar();
+				switch (c) {
+				case 'b':
+					text.append('\b');
+					break;
+				case 'f':
+					text.append('\f');
+					break;
+				case 'n':
+					text.append('\n');
+					break;
+				case 'r':
+					text.append('\r');
+					break;
+				case 't':
+					text.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(nextChar(), 16);
+						if (digit < 0) {
+							throw new JSONException("Illegal escape");
+						}
+						code = code * 16 + digit;
+					}
+					text.append((char) code);
+					break;
+				case -1:
+					throw new JSONException("Unterminated string");
+				default:
+					text.append((char) c);
+					break;
+				}
+				break;
+			default:
+				text.append((char) c);
+				break;
+			}
+		}
+	}
+}
@@ -2,22 +2,21 @@ package com.demod.fbsr;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 public class LogisticGridCell {
+	private final ItemRegistry itemRegistry;
 	private Optional<Direction> move = Optional.empty();
 	private Optional<Direction> acceptFilter = Optional.empty();
 	private Optional<List<Point2D.Double>> warps = Optional.empty();
-	private Optional<Set<String>> inputs = Optional.empty();
-	private Optional<Set<String>> outputs = Optional.empty();
-	private Optional<Set<String>> bannedOutputs = Optional.empty();
+	// Item sets are bitsets of IDs of the item registry of the map
+	private Optional<BitSet> inputs = Optional.empty();
+	private Optional<BitSet> outputs = Optional.empty();
+	private Optional<BitSet> bannedOutputs = Optional.empty();
 
-	private Optional<SortedSet<String>> transits = Optional.empty();
+	private Optional<BitSet> transits = Optional.empty();
 	private boolean blockTransit = false;
 	// Not implemented in FBSR::populateReverseLogistics
 	private boolean blockWarpToIfMove = false; // dont warp to here if origin has a "move".
@@ -26,6 +25,10 @@ public class LogisticGridCell {
 	private Optional<List<Direction>> movedFrom = Optional.empty();
 	private Optional<List<Point2D.Double>> warpedFrom = Optional.empty();
 
+	public LogisticGridCell(ItemRegistry itemRegistry) {
+		this.itemRegistry = itemRegistry;
+	}
+
 	public boolean acceptMoveFrom(Direction move) {
 		if (acceptFilter.isPresent()) {
 			return acceptFilter.get().ordinal() == move.ordinal();
@@ -35,16 +38,16 @@ public class LogisticGridCell {
 
 	public void addBannedOutput(String itemName) {
 		if (!bannedOutputs.isPresent()) {
-			bannedOutputs = Optional.of(new LinkedHashSet<>());
+			bannedOutputs = Optional.of(new BitSet());
 		}
-		bannedOutputs.get().add(itemName);
+		bannedOutputs.get().set(itemRegistry.getId(itemName));
 	}
 
 	public void addInput(String itemName) {
 		if (!inputs.isPresent()) {
-			inputs = Optional.of(new LinkedHashSet<>());
+			inputs = Optional.of(new BitSet());
 		}
-		inputs.get().add(itemName);
+		inputs.get().set(itemRegistry.getId(itemName));
 	}
 
 	public void addMovedFrom(Direction dir) {
@@ -56,16 +59,23 @@ public class LogisticGridCell {
 
 	public void addOutput(String itemName) {
 		if (!outputs.isPresent()) {
-			outputs = Optional.of(new LinkedHashSet<>());
+			outputs = Optional.of(new BitSet());
 		}
-		outputs.get().add(itemName);
+		outputs.get().set(itemRegistry.getId(itemName));
 	}
 
-	public boolean addTransit(String itemName) {
+	/**
+	 * Adds the items to the transits, and returns the items that were not
+	 * already in transit.
+	 */
+	public BitSet addTransits(BitSet items) {
 		if (!transits.isPresent()) {
-			transits = Optional.of(new TreeSet<>());
+			transits = Optional.of(new BitSet());
 		}
-		return transits.get().add(itemName);
+		BitSet added = (BitSet) items.clone();
+		added.andNot(transits.get());
+		transits.get().or(added);
+		return added;
 	}
 
 	public void addWarp(Point2D.Double warp) {
@@ -86,11 +96,11 @@ public class LogisticGridCell {
 		return acceptFilter;
 	}
 
-	public Optional<Set<String>> getBannedOutputs() {
+	public Optional<BitSet> getBannedOutputs() {
 		return bannedOutputs;
 	}
 
-	public Optional<Set<String>> getInputs() {
+	public Optional<BitSet> getInputs() {
 		return inputs;
 	}
 
@@ -102,11 +112,11 @@ public class LogisticGridCell {
 		return movedFrom;
 	}
 
-	public Optional<Set<String>> getOutputs() {
+	public Optional<BitSet> getOutputs() {
 		return outputs;
 	}
 
-	public Optional<SortedSet<String>> getTransits() {
+	public Optional<BitSet> getTransits() {
 		return transits;
 	}
 
@@ -122,9 +132,9 @@ public class LogisticGridCell {
 		return move.isPresent() || warps.isPresent() || inputs.isPresent();
 	}
 
-	public boolean isBannedOutput(String item) {
+	public boolean isBannedOutput(int itemId) {
 		if (bannedOutputs.isPresent()) {
-			return bannedOutputs.get().contains(item);
+			return bannedOutputs.get().get(itemId);
 		}
 		return false;
 	}
@@ -154,7 +164,7 @@ public class LogisticGridCell {
 		this.acceptFilter = acceptFilter;
 	}
 
-	public void setBannedOutputs(Optional<Set<String>> bannedOutputs) {
+	public void setBannedOutputs(Optional<BitSet> bannedOutputs) {
 		this.bannedOutputs = bannedOutputs;
 	}
 
@@ -170,7 +180,7 @@ public class LogisticGridCell {
 		this.blockWarpToIfMove = blockWarpToIfMove;
 	}
 
-	public void setInputs(Optional<Set<String>> inputs) {
+	public void setInputs(Optional<BitSet> inputs) {
 		this.inputs = inputs;
 	}
 
@@ -178,7 +188,7 @@ public class LogisticGridCell {
 		this.move = move;
 	}
 
-	public void setOutputs(Optional<Set<String>> outputs) {
+	public void setOutputs(Optional<BitSet> outputs) {
 		this.outputs = outputs;
 	}
 
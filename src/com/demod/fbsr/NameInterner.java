@@ -0,0 +1,93 @@
+package com.demod.fbsr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numbers names as small int IDs in the order they are first seen, so that
+ * they can be kept in int columns and bitsets. Names come from user
+ * blueprints, so an interner is scoped to the blueprint or render that reads
+ * them, and the names it collected are dropped along with it.
+ */
+public class NameInterner {
+	private final NameInterner base;
+	private final int baseSize;
+	private final Map<String, Integer> ids = new HashMap<>();
+	// Replaced on growth, so that names can be read without locking
+	private volatile String[] names = new String[16];
+	private int count = 0;
+
+	public NameInterner() {
+		this(null);
+	}
+
+	/**
+	 * Continues the numbering of the base, which keeps its IDs. The base must
+	 * not intern any more names once it is shared, so that it is read without
+	 * locking.
+	 */
+	public NameInterner(NameInterner base) {
+		this.base = base;
+		baseSize = base != null ? base.getSize() : 0;
+	}
+
+	/**
+	 * The ID of the name, or -1 if it was not interned.
+	 */
+	public int find(String name) {
+		int id = base != null ? base.findShared(name) : -1;
+		if (id != -1) {
+			return id;
+		}
+		synchronized (this) {
+			Integer ret = ids.get(name);
+			return ret != null ? ret : -1;
+		}
+	}
+
+	private int findShared(String name) {
+		int id = base != null ? base.findShared(name) : -1;
+		if (id != -1) {
+			return id;
+		}
+		Integer ret = ids.get(name);
+		return ret != null ? ret : -1;
+	}
+
+	/**
+	 * The name with the ID.
+	 */
+	public String getName(int id) {
+		return id < baseSize ? base.getName(id) : names[id - baseSize];
+	}
+
+	public synchronized int getSize() {
+		return baseSize + count;
+	}
+
+	/**
+	 * The ID of the name, numbered after every name seen before it if it is
+	 * new.
+	 */
+	public int intern(String name) {
+		int baseId = base != null ? base.findShared(name) : -1;
+		if (baseId != -1) {
+			return baseId;
+		}
+		synchronized (this) {
+			Integer id = ids.get(name);
+			if (id == null) {
+				String[] ret = names;
+				if (count == ret.length) {
+					ret = Arrays.copyOf(ret, count * 2);
+				}
+				ret[count] = name;
+				names = ret;
+				id = baseSize + count++;
+				ids.put(name, id);
+			}
+			return id;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.demod.fbsr;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8-bit RGB PNG row by row, so an image can be encoded without ever
+ * being held in memory as a whole. Rows must be written top to bottom, and
+ * exactly as many rows as the height given to the constructor. Closing the
+ * writer finishes the PNG but leaves the underlying stream open.
+ */
+public class PNGStreamWriter implements Closeable {
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	private static final int IDAT_CHUNK_SIZE = 64 * 1024;
+
+	private static final int FILTER_PAETH = 4;
+
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+		if (pa <= pb && pa <= pc) {
+			return a;
+		} else if (pb <= pc) {
+			return b;
+		} else {
+			return c;
+		}
+	}
+
+	private final DataOutputStream out;
+	private final int width;
+	private final int height;
+
+	private final ByteArrayOutputStream idatBuffer = new ByteArrayOutputStream(IDAT_CHUNK_SIZE);
+	private final Deflater deflater = new Deflater();
+	private final DeflaterOutputStream deflaterStream;
+
+	private final int[] pixels;
+	private byte[] row;
+	private byte[] prevRow;
+	private final byte[] filtered;
+
+	private int rowsWritten = 0;
+	private boolean closed = false;
+
+	public PNGStreamWriter(OutputStream out, int width, int height) throws IOException {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Invalid PNG dimensions: " + width + "x" + height);
+		}
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+
+		pixels = new int[width];
+		row = new byte[width * 3];
+		prevRow = new byte[width * 3];
+		filtered = new byte[1 + width * 3];
+
+		deflaterStream = new DeflaterOutputStream(new OutputStream() {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				idatBuffer.write(b, off, len);
+				if (idatBuffer.size() >= IDAT_CHUNK_SIZE) {
+					flushIDAT();
+				}
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+		}, deflater, IDAT_CHUNK_SIZE);
+
+		this.out.write(SIGNATURE);
+
+		ByteArrayOutputStream ihdr = new ByteArrayOutputStream(13);
+		DataOutputStream ihdrData = new DataOutputStream(ihdr);
+		ihdrData.writeInt(width);
+		ihdrData.writeInt(height);
+		ihdrData.writeByte(8); // bit depth
+		ihdrData.writeByte(2); // color type RGB
+		ihdrData.writeByte(0); // compression
+		ihdrData.writeByte(0); // filter
+		ihdrData.writeByte(0); // interlace
+		writeChunk("IHDR", ihdr.toByteArray(), ihdr.size());
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (rowsWritten != height) {
+				throw new IOException("PNG expected " + height + " rows, but " + rowsWritten + " were written!");
+			}
+			deflaterStream.finish();
+			flushIDAT();
+			writeChunk("IEND", new byte[0], 0);
+			out.flush();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void flushIDAT() throws IOException {
+		if (idatBuffer.size() > 0) {
+			writeChunk("IDAT", idatBuffer.toByteArray(), idatBuffer.size());
+			idatBuffer.reset();
+		}
+	}
+
+	public int getRowsWritten() {
+		return rowsWritten;
+	}
+
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	/**
+	 * Encodes {@code rows} rows of the image starting at row {@code y}. The image
+	 * must be exactly as wide as this PNG.
+	 */
+	public void writeRows(BufferedImage image, int y, int rows) throws IOException {
+		if (image.getWidth() != width) {
+			throw new IllegalArgumentException("Image width " + image.getWidth() + " does not match PNG width "
+					+ width + "!");
+		}
+		if (rowsWritten + rows > height) {
+			throw new IOException("PNG only has " + height + " rows!");
+		}
+
+		for (int r = y; r < y + rows; r++) {
+			image.getRGB(0, r, width, 1, pixels, 0, width);
+			for (int x = 0, i = 0; x < width; x++, i += 3) {
+				int rgb = pixels[x];
+				row[i] = (byte) (rgb >> 16);
+				row[i + 1] = (byte) (rgb >> 8);
+				row[i + 2] = (byte) rgb;
+			}
+
+			filtered[0] = FILTER_PAETH;
+			for (int i = 0; i < row.length; i++) {
+				int a = i >= 3 ? row[i - 3] & 0xFF : 0;
+				int b = rowsWritten > 0 ? prevRow[i] & 0xFF : 0;
+				int c = i >= 3 && rowsWritten > 0 ? prevRow[i - 3] & 0xFF : 0;
+				filtered[i + 1] = (byte) ((row[i] & 0xFF) - paeth(a, b, c));
+			}
+			deflaterStream.write(filtered);
+
+			byte[] swap = prevRow;
+			prevRow = row;
+			row = swap;
+			rowsWritten++;
+		}
+	}
+}
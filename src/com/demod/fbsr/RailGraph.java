@@ -0,0 +1,244 @@
+package com.demod.fbsr;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.demod.fbsr.WorldMap.RailEdge;
+import com.demod.fbsr.WorldMap.RailNode;
+import com.google.common.collect.Table.Cell;
+
+/**
+ * Compact copy of the rail graph of a {@link WorldMap} for the rail passes.
+ * Nodes are numbered in the order of {@link WorldMap#getRailNodes()}, and the
+ * rail edge pair k of {@link WorldMap#getRailEdges()} becomes the edges 2k and
+ * 2k+1. The edges leaving or entering a node in each direction are kept as
+ * CSR ranges, and the edge flags as bits, so traversal needs no lookups or
+ * allocation. Directions are {@link Direction} ordinals.
+ */
+public class RailGraph {
+	/**
+	 * Growable FIFO queue of edge IDs, reused between traversals.
+	 */
+	public static class EdgeQueue {
+		private int[] edges = new int[64];
+		private int head = 0;
+		private int tail = 0;
+
+		public void add(int edge) {
+			if (tail == edges.length) {
+				if (head > 0) {
+					System.arraycopy(edges, head, edges, 0, tail - head);
+					tail -= head;
+					head = 0;
+				} else {
+					edges = Arrays.copyOf(edges, edges.length * 2);
+				}
+			}
+			edges[tail++] = edge;
+		}
+
+		public void clear() {
+			head = 0;
+			tail = 0;
+		}
+
+		public boolean isEmpty() {
+			return head == tail;
+		}
+
+		public int poll() {
+			return edges[head++];
+		}
+	}
+
+	public static final int BLOCKED = 1;
+	public static final int INPUT = 2;
+	public static final int OUTPUT = 4;
+
+	private static final int DIRECTIONS = 8;
+
+	public static int back(int dir) {
+		return (dir + DIRECTIONS / 2) % DIRECTIONS;
+	}
+
+	private static int[] buildOffsets(int[] keys, int keyCount) {
+		int[] offsets = new int[keyCount + 1];
+		for (int key : keys) {
+			offsets[key + 1]++;
+		}
+		for (int i = 0; i < keyCount; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		return offsets;
+	}
+
+	private static int[] buildRanges(int[] keys, int[] offsets) {
+		int[] ret = new int[keys.length];
+		int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+		// Edges are placed in ID order, so each range keeps insertion order
+		for (int edge = 0; edge < keys.length; edge++) {
+			ret[next[keys[edge]]++] = edge;
+		}
+		return ret;
+	}
+
+	private final List<Entry<RailEdge, RailEdge>> railEdges;
+	private final int nodeCount;
+	private final byte[] nodeSignals;
+	private final byte[] nodeStations;
+
+	private final int[] edgeStartNodes;
+	private final int[] edgeEndNodes;
+	private final byte[] edgeStartDirs;
+	private final byte[] edgeEndDirs;
+	private final byte[] edgeFlags;
+
+	// Indexed by node * 8 + direction
+	private final int[] outgoingOffsets;
+	private final int[] outgoingEdges;
+	private final int[] incomingOffsets;
+	private final int[] incomingEdges;
+
+	public RailGraph(WorldMap map) {
+		Map<RailNode, Integer> nodeIds = new IdentityHashMap<>();
+		nodeCount = map.getRailNodes().size();
+		nodeSignals = new byte[nodeCount];
+		nodeStations = new byte[nodeCount];
+		for (Cell<Integer, Integer, RailNode> c : map.getRailNodes().cellSet()) {
+			int node = nodeIds.size();
+			RailNode railNode = c.getValue();
+			nodeIds.put(railNode, node);
+			for (Direction dir : railNode.getSignals()) {
+				nodeSignals[node] |= 1 << dir.ordinal();
+			}
+			nodeStations[node] = (byte) railNode.getStation().map(Direction::ordinal).orElse(-1).intValue();
+		}
+
+		railEdges = map.getRailEdges();
+		int edgeCount = railEdges.size() * 2;
+		edgeStartNodes = new int[edgeCount];
+		edgeEndNodes = new int[edgeCount];
+		edgeStartDirs = new byte[edgeCount];
+		edgeEndDirs = new byte[edgeCount];
+		edgeFlags = new byte[edgeCount];
+		int[] outgoingKeys = new int[edgeCount];
+		int[] incomingKeys = new int[edgeCount];
+		for (int k = 0; k < railEdges.size(); k++) {
+			Entry<RailEdge, RailEdge> pair = railEdges.get(k);
+			for (int i = 0; i < 2; i++) {
+				RailEdge railEdge = i == 0 ? pair.getKey() : pair.getValue();
+				int edge = k * 2 + i;
+				edgeStartNodes[edge] = nodeIds.get(map.getRailNode(railEdge.getStartPos()).get());
+				edgeEndNodes[edge] = nodeIds.get(map.getRailNode(railEdge.getEndPos()).get());
+				edgeStartDirs[edge] = (byte) railEdge.getStartDir().ordinal();
+				edgeEndDirs[edge] = (byte) railEdge.getEndDir().ordinal();
+				outgoingKeys[edge] = edgeStartNodes[edge] * DIRECTIONS + edgeStartDirs[edge];
+				incomingKeys[edge] = edgeEndNodes[edge] * DIRECTIONS + edgeEndDirs[edge];
+			}
+		}
+
+		outgoingOffsets = buildOffsets(outgoingKeys, nodeCount * DIRECTIONS);
+		outgoingEdges = buildRanges(outgoingKeys, outgoingOffsets);
+		incomingOffsets = buildOffsets(incomingKeys, nodeCount * DIRECTIONS);
+		incomingEdges = buildRanges(incomingKeys, incomingOffsets);
+	}
+
+	public void addIncomingEdges(EdgeQueue queue, int node, int dir) {
+		int key = node * DIRECTIONS + dir;
+		for (int i = incomingOffsets[key]; i < incomingOffsets[key + 1]; i++) {
+			queue.add(incomingEdges[i]);
+		}
+	}
+
+	public void addOutgoingEdges(EdgeQueue queue, int node, int dir) {
+		int key = node * DIRECTIONS + dir;
+		for (int i = outgoingOffsets[key]; i < outgoingOffsets[key + 1]; i++) {
+			queue.add(outgoingEdges[i]);
+		}
+	}
+
+	public boolean allIncomingHaveFlag(int node, int dir, int flag) {
+		int key = node * DIRECTIONS + dir;
+		for (int i = incomingOffsets[key]; i < incomingOffsets[key + 1]; i++) {
+			if ((edgeFlags[incomingEdges[i]] & flag) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean allOutgoingHaveFlag(int node, int dir, int flag) {
+		int key = node * DIRECTIONS + dir;
+		for (int i = outgoingOffsets[key]; i < outgoingOffsets[key + 1]; i++) {
+			if ((edgeFlags[outgoingEdges[i]] & flag) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the edge flags back onto the {@link RailEdge} objects of the map.
+	 */
+	public void applyEdgeFlags() {
+		for (int k = 0; k < railEdges.size(); k++) {
+			Entry<RailEdge, RailEdge> pair = railEdges.get(k);
+			for (int i = 0; i < 2; i++) {
+				RailEdge railEdge = i == 0 ? pair.getKey() : pair.getValue();
+				int flags = edgeFlags[k * 2 + i];
+				railEdge.setBlocked((flags & BLOCKED) != 0);
+				railEdge.setInput((flags & INPUT) != 0);
+				railEdge.setOutput((flags & OUTPUT) != 0);
+			}
+		}
+	}
+
+	public int getEdgeCount() {
+		return edgeFlags.length;
+	}
+
+	public int getEndDir(int edge) {
+		return edgeEndDirs[edge];
+	}
+
+	public int getEndNode(int edge) {
+		return edgeEndNodes[edge];
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Bits of the directions with a signal, by direction ordinal.
+	 */
+	public int getSignals(int node) {
+		return nodeSignals[node] & 0xFF;
+	}
+
+	public int getStartDir(int edge) {
+		return edgeStartDirs[edge];
+	}
+
+	public int getStartNode(int edge) {
+		return edgeStartNodes[edge];
+	}
+
+	/**
+	 * The direction of the station at the node, or -1 if there is none.
+	 */
+	public int getStation(int node) {
+		return nodeStations[node];
+	}
+
+	public boolean hasFlag(int edge, int flag) {
+		return (edgeFlags[edge] & flag) != 0;
+	}
+
+	public void setFlag(int edge, int flag) {
+		edgeFlags[edge] |= flag;
+	}
+}
@@ -0,0 +1,267 @@
+package com.demod.fbsr;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Caches rendered blueprint images, keyed by a hash of the blueprint JSON and
+ * the options that change the image. Recent images are kept in memory up to a
+ * byte budget, and optionally encoded as PNGs into a folder, which is trimmed
+ * oldest first once it grows past its own budget.
+ */
+public class RenderCache {
+	private static final String[] IMAGE_OPTIONS = { "max-width", "max-height", "show-info-panels" };
+
+	private static void appendCanonical(StringBuilder sb, Object value) {
+		if (value instanceof JSONObject) {
+			JSONObject json = (JSONObject) value;
+			sb.append('{');
+			boolean first = true;
+			for (String key : new TreeSet<>(json.keySet())) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				sb.append(JSONObject.quote(key)).append(':');
+				appendCanonical(sb, json.get(key));
+			}
+			sb.append('}');
+		} else if (value instanceof JSONArray) {
+			JSONArray json = (JSONArray) value;
+			sb.append('[');
+			for (int i = 0; i < json.length(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendCanonical(sb, json.get(i));
+			}
+			sb.append(']');
+		} else if (value instanceof String) {
+			sb.append(JSONObject.quote((String) value));
+		} else {
+			sb.append(value);
+		}
+	}
+
+	/**
+	 * Key of the image that {@link FBSR#renderBlueprint} would produce for this
+	 * blueprint and options. Options that do not change the image (such as
+	 * parallel-bands) are left out.
+	 */
+	public static String createKey(Blueprint blueprint, JSONObject options) {
+		JSONObject effectiveOptions = new JSONObject();
+		for (String key : IMAGE_OPTIONS) {
+			if (options.has(key)) {
+				effectiveOptions.put(key, options.get(key));
+			}
+		}
+		effectiveOptions.put("show-info-panels", options.optBoolean("show-info-panels", true));
+		for (String key : options.keySet()) {
+			if (key.startsWith("debug-")) {
+				effectiveOptions.put(key, options.optBoolean(key));
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(FBSR.getVersion()).append('\n');
+		appendCanonical(sb, blueprint.json());
+		sb.append('\n');
+		appendCanonical(sb, effectiveOptions);
+
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long imageBytes(BufferedImage image) {
+		return (long) image.getWidth() * image.getHeight() * 4;
+	}
+
+	private final long maxMemoryBytes;
+	private final LinkedHashMap<String, BufferedImage> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBytes = 0;
+
+	private final Optional<File> diskFolder;
+	private final long maxDiskBytes;
+	private final AtomicLong diskBytes = new AtomicLong();
+	private final ExecutorService diskWriter;
+
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public RenderCache(long maxMemoryBytes, Optional<File> diskFolder, long maxDiskBytes) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.diskFolder = diskFolder;
+		this.maxDiskBytes = maxDiskBytes;
+
+		if (diskFolder.isPresent()) {
+			diskFolder.get().mkdirs();
+			for (File file : listDiskFiles()) {
+				diskBytes.addAndGet(file.length());
+			}
+			// PNG encoding is slow, so it is kept off the rendering thread
+			diskWriter = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "RenderCache Disk Writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			diskWriter = null;
+		}
+	}
+
+	private File diskFile(String key) {
+		return new File(diskFolder.get(), key + ".png");
+	}
+
+	/**
+	 * The cached image, shared with every other caller of the same key, so it
+	 * must not be drawn on.
+	 */
+	public Optional<BufferedImage> get(String key) {
+		synchronized (memory) {
+			BufferedImage image = memory.get(key);
+			if (image != null) {
+				memoryHits.incrementAndGet();
+				return Optional.of(image);
+			}
+		}
+
+		if (diskFolder.isPresent()) {
+			File file = diskFile(key);
+			if (file.exists()) {
+				try {
+					BufferedImage image = ImageIO.read(file);
+					if (image != null) {
+						file.setLastModified(System.currentTimeMillis());
+						putMemory(key, image);
+						diskHits.incrementAndGet();
+						return Optional.of(image);
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		misses.incrementAndGet();
+		return Optional.empty();
+	}
+
+	public long getDiskBytes() {
+		return diskBytes.get();
+	}
+
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	public long getMemoryBytes() {
+		synchronized (memory) {
+			return memoryBytes;
+		}
+	}
+
+	public long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private File[] listDiskFiles() {
+		File[] files = diskFolder.get().listFiles((dir, name) -> name.endsWith(".png"));
+		return files != null ? files : new File[0];
+	}
+
+	public void put(String key, BufferedImage image) {
+		putMemory(key, image);
+
+		if (diskFolder.isPresent()) {
+			diskWriter.submit(() -> {
+				File file = diskFile(key);
+				if (file.exists()) {
+					return;
+				}
+				File tempFile = new File(diskFolder.get(), key + ".tmp");
+				try {
+					ImageIO.write(image, "PNG", tempFile);
+					if (tempFile.renameTo(file)) {
+						diskBytes.addAndGet(file.length());
+						trimDisk();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				} finally {
+					tempFile.delete();
+				}
+			});
+		}
+	}
+
+	private void putMemory(String key, BufferedImage image) {
+		long bytes = imageBytes(image);
+		if (bytes > maxMemoryBytes) {
+			return;
+		}
+		synchronized (memory) {
+			BufferedImage previous = memory.put(key, image);
+			if (previous != null) {
+				memoryBytes -= imageBytes(previous);
+			}
+			memoryBytes += bytes;
+
+			Iterator<Entry<String, BufferedImage>> iter = memory.entrySet().iterator();
+			while (memoryBytes > maxMemoryBytes && iter.hasNext()) {
+				Entry<String, BufferedImage> eldest = iter.next();
+				memoryBytes -= imageBytes(eldest.getValue());
+				iter.remove();
+			}
+		}
+	}
+
+	private void trimDisk() {
+		if (diskBytes.get() <= maxDiskBytes) {
+			return;
+		}
+		File[] files = listDiskFiles();
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (diskBytes.get() <= maxDiskBytes) {
+				break;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				diskBytes.addAndGet(-length);
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.demod.fbsr;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Admits renders against a global byte budget for their image buffers.
+ * Renders reserve their estimated cost before allocating anything and wait in
+ * arrival order until it fits. Renders that could never fit are rejected
+ * immediately, and renders that wait longer than the queue timeout give up.
+ */
+public class RenderScheduler {
+	/**
+	 * A render that was not admitted, either because it could never fit in the
+	 * budget or because it waited too long for it.
+	 */
+	public static class RejectedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public RejectedException(String message) {
+			super(message);
+		}
+	}
+
+	public class Reservation implements AutoCloseable {
+		private final long bytes;
+		private boolean released = false;
+
+		private Reservation(long bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void close() {
+			synchronized (RenderScheduler.this) {
+				if (!released) {
+					released = true;
+					availableBytes += bytes;
+					RenderScheduler.this.notifyAll();
+				}
+			}
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+	private final long budgetBytes;
+	private final long queueTimeoutMillis;
+
+	private long availableBytes;
+	private final ArrayDeque<Object> queue = new ArrayDeque<>();
+
+	private long rejectedCount = 0;
+
+	public RenderScheduler(long budgetBytes, long queueTimeoutMillis) {
+		this.budgetBytes = budgetBytes;
+		this.queueTimeoutMillis = queueTimeoutMillis;
+		availableBytes = budgetBytes;
+	}
+
+	public synchronized long getAvailableBytes() {
+		return availableBytes;
+	}
+
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	public synchronized int getQueueLength() {
+		return queue.size();
+	}
+
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * Blocks until the bytes fit in the budget and every render queued earlier
+	 * has been admitted. Close the reservation once the buffers are released.
+	 * Throws a {@link RejectedException} if the render is not admitted.
+	 */
+	public synchronized Reservation reserve(long bytes) throws IOException {
+		if (bytes > budgetBytes) {
+			rejectedCount++;
+			throw new RejectedException("Render needs " + (bytes >> 20) + " MB, the render budget is only "
+					+ (budgetBytes >> 20) + " MB!");
+		}
+
+		Object ticket = new Object();
+		queue.add(ticket);
+		long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+		try {
+			while (queue.peek() != ticket || availableBytes < bytes) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					rejectedCount++;
+					throw new RejectedException("Timed out waiting for " + (bytes >> 20) + " MB of render budget! ("
+							+ (queue.size() - 1) + " renders queued)");
+				}
+				wait(remaining);
+			}
+			availableBytes -= bytes;
+			return new Reservation(bytes);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for render budget!");
+
+		} finally {
+			queue.remove(ticket);
+			notifyAll();
+		}
+	}
+}
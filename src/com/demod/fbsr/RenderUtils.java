@@ -15,10 +15,10 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.luaj.vm2.LuaValue;
 
@@ -53,6 +53,17 @@ public final class RenderUtils {
 
 	private static final DecimalFormat DECIMAL_FORMAT_2_PLACES = new DecimalFormat("#,##0.##");
 
+	private static final double WIRE_DROP = 0.6;
+
+	/**
+	 * Adds the sagging curve of a wire between the points to the path.
+	 */
+	public static void appendWire(Path2D path, double x1, double y1, double x2, double y2) {
+		double midX = (x1 + x2) / 2, midY = (y1 + y2) / 2 + WIRE_DROP;
+		path.moveTo(x1, y1);
+		path.curveTo(midX, midY, midX, midY, x2, y2);
+	}
+
 	public static List<Sprite> createSprites(List<List<SpriteDef>> sprites, Direction dir) {
 		return createSprites(sprites.get(dir.ordinal()));
 	}
@@ -66,8 +77,6 @@ public final class RenderUtils {
 		bounds.setFrameFromDiagonal(p1, p2);
 
 		return new Renderer(Layer.WIRE, bounds) {
-			final double drop = 0.6;
-
 			@Override
 			public void render(Graphics2D g) {
 				Stroke ps = g.getStroke();
@@ -75,9 +84,7 @@ public final class RenderUtils {
 				g.setColor(color);
 
 				Path2D.Double path = new Path2D.Double();
-				path.moveTo(p1.x, p1.y);
-				Point2D.Double mid = new Point2D.Double((p1.x + p2.x) / 2, (p1.y + p2.y) / 2 + drop);
-				path.curveTo(mid.x, mid.y, mid.x, mid.y, p2.x, p2.y);
+				appendWire(path, p1.x, p1.y, p2.x, p2.y);
 				g.draw(path);
 
 				g.setStroke(ps);
@@ -119,7 +126,27 @@ public final class RenderUtils {
 	}
 
 	public static void drawSprite(Sprite sprite, Graphics2D g) {
-		drawImageInBounds(sprite.image, sprite.source, sprite.bounds, g);
+		SpriteDef def = sprite.def;
+		// Sprites moved to another frame or re-tinted are drawn from their own image
+		if (def != null && sprite.image == def.getImage() && sprite.source.equals(def.getSource())
+				&& Objects.equals(sprite.tint, def.getTint())) {
+			AffineTransform xform = g.getTransform();
+			double pixelScale = Math.max(
+					Math.hypot(xform.getScaleX(), xform.getShearY()) * sprite.bounds.width / sprite.source.width,
+					Math.hypot(xform.getShearX(), xform.getScaleY()) * sprite.bounds.height / sprite.source.height);
+			int level = pixelScale > 0 ? (int) Math.floor(-Math.log(pixelScale) / Math.log(2) + 1e-6) : 0;
+			if (level > 0) {
+				BufferedImage mip = def.getMipLevel(level);
+				drawImageInBounds(mip, new Rectangle(mip.getWidth(), mip.getHeight()), sprite.bounds, g);
+			} else {
+				drawImageInBounds(def.getDrawImage(), def.getDrawSource(), sprite.bounds, g);
+			}
+		} else if (sprite.tint != null) {
+			BufferedImage tinted = TintedImageCache.get(sprite.image, sprite.source, sprite.tint);
+			drawImageInBounds(tinted, new Rectangle(tinted.getWidth(), tinted.getHeight()), sprite.bounds, g);
+		} else {
+			drawImageInBounds(sprite.image, sprite.source, sprite.bounds, g);
+		}
 	}
 
 	public static Renderer drawString(Layer layer, Point2D.Double position, Color color, String string) {
@@ -173,22 +200,12 @@ public final class RenderUtils {
 
 	public static Optional<Multiset<String>> getModules(BlueprintEntity entity, DataTable table) {
 		// TODO new format
-		if (entity.isJsonNewFormat() || !entity.json().has("items")) {
+		Multiset<String> items = entity.getItems();
+		if (items == null) {
 			return Optional.empty();
 		}
 
-		Multiset<String> modules = LinkedHashMultiset.create();
-
-		Object itemsJson = entity.json().get("items");
-		if (itemsJson instanceof JSONObject) {
-			Utils.forEach(entity.json().getJSONObject("items"), (String itemName, Integer count) -> {
-				modules.add(itemName, count);
-			});
-		} else if (itemsJson instanceof JSONArray) {
-			Utils.<JSONObject>forEach(entity.json().getJSONArray("items"), j -> {
-				modules.add(j.getString("item"), j.getInt("count"));
-			});
-		}
+		Multiset<String> modules = LinkedHashMultiset.create(items);
 
 		modules.entrySet().removeIf(e -> {
 			Optional<ItemPrototype> item = table.getItem(e.getElement());
@@ -242,7 +259,7 @@ public final class RenderUtils {
 		}
 		LuaValue tint = lua.get("tint");
 		if (!tint.isnil()) {
-			ret.image = Utils.tintImage(ret.image, Utils.parseColor(tint));
+			ret.tint = Utils.parseColor(tint);
 		}
 		double scale = lua.get("scale").optdouble(1.0);
 		int srcX = lua.get("x").optint(0);
@@ -303,18 +320,40 @@ public final class RenderUtils {
 		return sprites;
 	}
 
-	public static void halveAlpha(BufferedImage image) {
-		int w = image.getWidth();
-		int h = image.getHeight();
-		int[] pixels = new int[w * h];
-		image.getRGB(0, 0, w, h, pixels, 0, w);
-		for (int i = 0; i < pixels.length; i++) {
-			int argb = pixels[i];
-			int a = ((argb >> 24) & 0xFF);
-
-			pixels[i] = ((a / 2) << 24) | (argb & 0xFFFFFF);
+	/**
+	 * Box filters the source region of the image down to half its size (rounded
+	 * up), averaging the colors weighted by alpha so transparent pixels do not
+	 * darken the edges.
+	 */
+	public static BufferedImage halveImage(BufferedImage image, Rectangle source) {
+		int w = source.width;
+		int h = source.height;
+		int hw = (w + 1) / 2;
+		int hh = (h + 1) / 2;
+		int[] pixels = image.getRGB(source.x, source.y, w, h, null, 0, w);
+		int[] halved = new int[hw * hh];
+		for (int y = 0; y < hh; y++) {
+			for (int x = 0; x < hw; x++) {
+				int a = 0, r = 0, g = 0, b = 0, count = 0;
+				for (int sy = y * 2; sy < Math.min(y * 2 + 2, h); sy++) {
+					for (int sx = x * 2; sx < Math.min(x * 2 + 2, w); sx++) {
+						int argb = pixels[sy * w + sx];
+						int pa = (argb >>> 24);
+						a += pa;
+						r += ((argb >> 16) & 0xFF) * pa;
+						g += ((argb >> 8) & 0xFF) * pa;
+						b += (argb & 0xFF) * pa;
+						count++;
+					}
+				}
+				if (a > 0) {
+					halved[y * hw + x] = ((a / count) << 24) | ((r / a) << 16) | ((g / a) << 8) | (b / a);
+				}
+			}
 		}
-		image.setRGB(0, 0, w, h, pixels, 0, w);
+		BufferedImage ret = new BufferedImage(hw, hh, BufferedImage.TYPE_INT_ARGB);
+		ret.setRGB(0, 0, hw, hh, halved, 0, hw);
+		return ret;
 	}
 
 	public static Color parseColor(JSONObject json) {
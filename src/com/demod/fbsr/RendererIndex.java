@@ -0,0 +1,113 @@
+package com.demod.fbsr;
+
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Uniform bucket grid over {@link Renderer#getBounds()}, built once after the
+ * renderers are created. Queries return the indices of the intersecting
+ * renderers in the order of the indexed list.
+ */
+public class RendererIndex {
+	private static final double CELL_SIZE = 8.0;
+	private static final long MAX_CELLS = 1 << 20;
+
+	private final List<Renderer> renderers;
+
+	private final double originX;
+	private final double originY;
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+
+	// Cell c holds cellEntries[cellStart[c]] to cellEntries[cellStart[c + 1] - 1]
+	private final int[] cellStart;
+	private final int[] cellEntries;
+
+	public RendererIndex(List<Renderer> renderers, Rectangle2D.Double worldBounds) {
+		this.renderers = renderers;
+
+		originX = worldBounds.getMinX();
+		originY = worldBounds.getMinY();
+		double cellSize = CELL_SIZE;
+		while (((long) (worldBounds.getWidth() / cellSize) + 1)
+				* ((long) (worldBounds.getHeight() / cellSize) + 1) > MAX_CELLS) {
+			cellSize *= 2;
+		}
+		this.cellSize = cellSize;
+		columns = (int) (worldBounds.getWidth() / cellSize) + 1;
+		rows = (int) (worldBounds.getHeight() / cellSize) + 1;
+
+		int[] counts = new int[columns * rows + 1];
+		for (Renderer renderer : renderers) {
+			Rectangle2D.Double bounds = renderer.getBounds();
+			int minCol = column(bounds.getMinX()), maxCol = column(bounds.getMaxX());
+			int minRow = row(bounds.getMinY()), maxRow = row(bounds.getMaxY());
+			for (int row = minRow; row <= maxRow; row++) {
+				for (int col = minCol; col <= maxCol; col++) {
+					counts[row * columns + col + 1]++;
+				}
+			}
+		}
+		for (int i = 1; i < counts.length; i++) {
+			counts[i] += counts[i - 1];
+		}
+		cellStart = counts.clone();
+
+		cellEntries = new int[counts[counts.length - 1]];
+		for (int i = 0; i < renderers.size(); i++) {
+			Rectangle2D.Double bounds = renderers.get(i).getBounds();
+			int minCol = column(bounds.getMinX()), maxCol = column(bounds.getMaxX());
+			int minRow = row(bounds.getMinY()), maxRow = row(bounds.getMaxY());
+			for (int row = minRow; row <= maxRow; row++) {
+				for (int col = minCol; col <= maxCol; col++) {
+					cellEntries[counts[row * columns + col]++] = i;
+				}
+			}
+		}
+	}
+
+	private int column(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - originX) / cellSize)));
+	}
+
+	public List<Renderer> getRenderers() {
+		return renderers;
+	}
+
+	/**
+	 * Indices of all renderers whose bounds intersect the region, edges
+	 * included so that point-sized renderers on the border are found.
+	 */
+	public BitSet query(Rectangle2D region) {
+		BitSet ret = new BitSet(renderers.size());
+		query(region, ret);
+		return ret;
+	}
+
+	public void query(Rectangle2D region, BitSet result) {
+		int minCol = column(region.getMinX()), maxCol = column(region.getMaxX());
+		int minRow = row(region.getMinY()), maxRow = row(region.getMaxY());
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				int cell = row * columns + col;
+				for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+					int i = cellEntries[e];
+					if (result.get(i)) {
+						continue;
+					}
+					Rectangle2D.Double bounds = renderers.get(i).getBounds();
+					if (bounds.getMaxX() >= region.getMinX() && bounds.getMinX() <= region.getMaxX()
+							&& bounds.getMaxY() >= region.getMinY() && bounds.getMinY() <= region.getMaxY()) {
+						result.set(i);
+					}
+				}
+			}
+		}
+	}
+
+	private int row(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellSize)));
+	}
+}
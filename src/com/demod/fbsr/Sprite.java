@@ -1,5 +1,6 @@
 package com.demod.fbsr;
 
+import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
@@ -10,6 +11,10 @@ public class Sprite {
 	public Rectangle2D.Double bounds;
 	public boolean shadow = false;
 	public int order = 0;
+	// Applied to the source region when drawn, see TintedImageCache
+	public Color tint = null;
+	// Definition this sprite was created from, to draw from its mip levels
+	public SpriteDef def = null;
 
 	public Sprite() {
 	}
@@ -19,5 +24,7 @@ public class Sprite {
 		source = new Rectangle(other.source);
 		bounds = new Rectangle2D.Double(other.bounds.x, other.bounds.y, other.bounds.width, other.bounds.height);
 		shadow = other.shadow;
+		tint = other.tint;
+		def = other.def;
 	}
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.demod.fbsr;
 
+import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SpriteDef {
 	private final BufferedImage image;
@@ -9,6 +12,10 @@ public class SpriteDef {
 	private final RectDef bounds;
 	private final boolean shadow;
 	private final int order;
+	private final Color tint;
+
+	// Level n is at index n - 1
+	private volatile BufferedImage[] mipLevels = null;
 
 	public SpriteDef(BufferedImage image, Rectangle source, RectDef bounds) {
 		this.image = image;
@@ -16,14 +23,21 @@ public class SpriteDef {
 		this.bounds = bounds;
 		this.shadow = false;
 		this.order = 0;
+		this.tint = null;
 	}
 
 	public SpriteDef(BufferedImage image, Rectangle source, RectDef bounds, boolean shadow, int order) {
+		this(image, source, bounds, shadow, order, null);
+	}
+
+	public SpriteDef(BufferedImage image, Rectangle source, RectDef bounds, boolean shadow, int order,
+			Color tint) {
 		this.image = image;
 		this.source = source;
 		this.bounds = bounds;
 		this.shadow = shadow;
 		this.order = order;
+		this.tint = tint;
 	}
 
 	public SpriteDef(Sprite sprite) {
@@ -32,6 +46,7 @@ public class SpriteDef {
 		this.bounds = new RectDef(sprite.bounds.x, sprite.bounds.y, sprite.bounds.width, sprite.bounds.height);
 		this.shadow = sprite.shadow;
 		this.order = sprite.order;
+		this.tint = sprite.tint;
 	}
 
 	public Sprite createSprite() {
@@ -41,9 +56,34 @@ public class SpriteDef {
 		sprite.bounds = bounds.createRect();
 		sprite.shadow = shadow;
 		sprite.order = order;
+		sprite.tint = tint;
+		sprite.def = this;
 		return sprite;
 	}
 
+	/**
+	 * The image to draw the sprite from: the tinted region from the
+	 * {@link TintedImageCache} if there is a tint, otherwise the sheet.
+	 */
+	public BufferedImage getDrawImage() {
+		if (tint != null) {
+			return TintedImageCache.get(image, source, tint);
+		}
+		return image;
+	}
+
+	/**
+	 * The region of {@link #getDrawImage()} to draw, all of the tinted image if
+	 * there is a tint.
+	 */
+	public Rectangle getDrawSource() {
+		if (tint != null) {
+			BufferedImage tinted = getDrawImage();
+			return new Rectangle(tinted.getWidth(), tinted.getHeight());
+		}
+		return source;
+	}
+
 	public RectDef getBounds() {
 		return bounds;
 	}
@@ -52,6 +92,36 @@ public class SpriteDef {
 		return image;
 	}
 
+	/**
+	 * The source region downscaled by 2^level, clamped to the smallest level.
+	 * The levels are built the first time any of them is needed.
+	 */
+	public BufferedImage getMipLevel(int level) {
+		BufferedImage[] levels = mipLevels;
+		if (levels == null) {
+			synchronized (this) {
+				levels = mipLevels;
+				if (levels == null) {
+					List<BufferedImage> chain = new ArrayList<>();
+					BufferedImage image = getDrawImage();
+					Rectangle source = getDrawSource();
+					while (source.width > 1 || source.height > 1) {
+						image = RenderUtils.halveImage(image, source);
+						source = new Rectangle(image.getWidth(), image.getHeight());
+						chain.add(image);
+					}
+					levels = chain.toArray(new BufferedImage[chain.size()]);
+					mipLevels = levels;
+				}
+			}
+		}
+		if (levels.length == 0) {
+			return getDrawImage().getSubimage(getDrawSource().x, getDrawSource().y, getDrawSource().width,
+					getDrawSource().height);
+		}
+		return levels[Math.min(level, levels.length) - 1];
+	}
+
 	public int getOrder() {
 		return order;
 	}
@@ -60,15 +130,23 @@ public class SpriteDef {
 		return source;
 	}
 
+	public Color getTint() {
+		return tint;
+	}
+
 	public boolean isShadow() {
 		return shadow;
 	}
 
 	public SpriteDef withImage(BufferedImage image) {
-		return new SpriteDef(image, source, bounds, shadow, order);
+		return new SpriteDef(image, source, bounds, shadow, order, tint);
 	}
 
 	public SpriteDef withOrder(int order) {
-		return new SpriteDef(image, source, bounds, shadow, order);
+		return new SpriteDef(image, source, bounds, shadow, order, tint);
+	}
+
+	public SpriteDef withTint(Color tint) {
+		return new SpriteDef(image, source, bounds, shadow, order, tint);
 	}
 }
\ No newline at end of file
@@ -7,8 +7,11 @@ import java.awt.Rectangle;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
@@ -44,11 +47,11 @@ public class TileRendererFactory {
 					g.drawString("?", (float) bounds.getCenterX() - 0.125f, (float) bounds.getCenterY() + 0.15f);
 				}
 			});
-			register.accept(new Renderer(Layer.OVERLAY4, bounds) {
-				@Override
-				public void render(Graphics2D g) {
-					if (labeledTypes.add(tile.getName())) {
-						g.setFont(g.getFont().deriveFont(0.4f));
+			if (labeledTypes.add(tile.getName())) {
+				register.accept(new Renderer(Layer.OVERLAY4, bounds) {
+					@Override
+					public void render(Graphics2D g) {
+						g.setFont(new Font("Monospaced", Font.BOLD, 1).deriveFont(0.4f));
 						float textX = (float) bounds.x;
 						float textY = (float) (bounds.y + bounds.height * randomFactor);
 						g.setColor(Color.darkGray);
@@ -56,8 +59,8 @@ public class TileRendererFactory {
 						g.setColor(Color.white);
 						g.drawString(tile.getName(), textX, textY);
 					}
-				}
-			});
+				});
+			}
 		}
 
 		@Override
@@ -150,17 +153,10 @@ public class TileRendererFactory {
 	private final Random rand = new Random();
 
 	protected TilePrototype prototype;
+	protected List<SpriteDef> protoVariants;
 
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable, BlueprintTile tile) {
-		LuaValue sheetLua = prototype.lua().get("variants").get("material_background");
-		if (sheetLua.isnil()) {
-			sheetLua = prototype.lua().get("variants").get("main").get(1);
-		}
-		Sprite sprite = new Sprite();
-		sprite.bounds = new Rectangle2D.Double(-0.5, -0.5, 1.0, 1.0);
-		sprite.image = FactorioData.getModImage(sheetLua.get("picture").tojstring());
-		sprite.source = new Rectangle(0, 0, 32, 32);
-		sprite.source.x = rand.nextInt(sheetLua.get("count").toint()) * sprite.source.width;
+		Sprite sprite = protoVariants.get(rand.nextInt(protoVariants.size())).createSprite();
 
 		register.accept(RenderUtils.spriteRenderer(Layer.TILE1, sprite, tile));
 	}
@@ -170,7 +166,18 @@ public class TileRendererFactory {
 	}
 
 	public void initFromPrototype(DataTable table, TilePrototype prototype) {
+		LuaValue sheetLua = prototype.lua().get("variants").get("material_background");
+		if (sheetLua.isnil()) {
+			sheetLua = prototype.lua().get("variants").get("main").get(1);
+		}
+		BufferedImage image = FactorioData.getModImage(sheetLua.get("picture").tojstring());
+		int count = sheetLua.get("count").toint();
 
+		protoVariants = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			protoVariants.add(
+					new SpriteDef(image, new Rectangle(i * 32, 0, 32, 32), new RectDef(-0.5, -0.5, 1.0, 1.0)));
+		}
 	}
 
 	public void populateWorldMap(WorldMap map, DataTable dataTable, BlueprintTile tile) {
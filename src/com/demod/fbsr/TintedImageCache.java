@@ -0,0 +1,79 @@
+package com.demod.fbsr;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import com.demod.factorio.Utils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Shared cache of tinted sprite regions. Only the source region is tinted, so
+ * an entry is the size of one frame rather than of the whole sheet. Entries
+ * are evicted least recently used once the cache grows past its byte budget.
+ */
+public final class TintedImageCache {
+	private static class Key {
+		private final BufferedImage image;
+		private final Rectangle source;
+		private final int rgba;
+
+		public Key(BufferedImage image, Rectangle source, Color tint) {
+			this.image = image;
+			this.source = new Rectangle(source);
+			this.rgba = tint.getRGB();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return image == other.image && rgba == other.rgba && source.equals(other.source);
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(image) * 31 + source.hashCode()) * 31 + rgba;
+		}
+	}
+
+	private static final long MAX_BYTES = 128L * 1024 * 1024;
+
+	private static final Cache<Key, BufferedImage> cache = CacheBuilder.newBuilder().maximumWeight(MAX_BYTES)
+			.<Key, BufferedImage>weigher((k, v) -> v.getWidth() * v.getHeight() * 4).build();
+
+	/**
+	 * Combines two tints the way tinting twice would, by multiplying the
+	 * channels.
+	 */
+	public static Color combine(Color tint1, Color tint2) {
+		return new Color(tint1.getRed() * tint2.getRed() / 255, tint1.getGreen() * tint2.getGreen() / 255,
+				tint1.getBlue() * tint2.getBlue() / 255, tint1.getAlpha() * tint2.getAlpha() / 255);
+	}
+
+	/**
+	 * The source region of the image with the tint applied. The region is
+	 * clipped to the image, so the returned image is smaller than the source
+	 * region where it hangs over the edge, and empty if they do not overlap.
+	 * Draw all of the returned image rather than the source region.
+	 */
+	public static BufferedImage get(BufferedImage image, Rectangle source, Color tint) {
+		Key key = new Key(image, source, tint);
+		BufferedImage ret = cache.getIfPresent(key);
+		if (ret == null) {
+			Rectangle region = source.intersection(new Rectangle(image.getWidth(), image.getHeight()));
+			if (region.isEmpty()) {
+				return RenderUtils.EMPTY_IMAGE;
+			}
+			ret = Utils.tintImage(image.getSubimage(region.x, region.y, region.width, region.height), tint);
+			cache.put(key, ret);
+		}
+		return ret;
+	}
+
+	private TintedImageCache() {
+	}
+}
@@ -0,0 +1,174 @@
+package com.demod.fbsr;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * Circuit wires of a blueprint, matched by packed long keys. A wire is added
+ * when the first of its two entities lists it, and paired when the other one
+ * does. Wires are numbered in the order they are added, and their endpoints
+ * are kept in parallel arrays.
+ */
+public class WireMap {
+	public static final int COLOR_RED = 0;
+	public static final int COLOR_GREEN = 1;
+	public static final int COLOR_OTHER = 2;
+
+	private static final int ENTITY_BITS = 27;
+	private static final int CIRCUIT_BITS = 3;
+	private static final int COLOR_BITS = 2;
+
+	public static int colorCode(String colorName) {
+		switch (colorName) {
+		case "red":
+			return COLOR_RED;
+		case "green":
+			return COLOR_GREEN;
+		default:
+			return COLOR_OTHER;
+		}
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Key of the wire between two circuit connections, the same from either
+	 * end. Wires from an entity to itself are keyed by the entity and color
+	 * only. Throws IllegalArgumentException if an entity ID is negative or does
+	 * not fit in 27 bits, or a circuit ID in 3 bits.
+	 */
+	public static long key(int entityId, int circuitId, int targetEntityId, int targetCircuitId, int color) {
+		if (entityId == targetEntityId) {
+			circuitId = 0;
+			targetCircuitId = 0;
+		} else if (entityId > targetEntityId) {
+			return key(targetEntityId, targetCircuitId, entityId, circuitId, color);
+		}
+		if ((entityId >>> ENTITY_BITS) != 0 || (targetEntityId >>> ENTITY_BITS) != 0
+				|| (circuitId >>> CIRCUIT_BITS) != 0 || (targetCircuitId >>> CIRCUIT_BITS) != 0) {
+			throw new IllegalArgumentException("Wire connection out of range: " + entityId + "/" + circuitId + " to "
+					+ targetEntityId + "/" + targetCircuitId);
+		}
+		long key = entityId;
+		key = (key << CIRCUIT_BITS) | circuitId;
+		key = (key << ENTITY_BITS) | targetEntityId;
+		key = (key << CIRCUIT_BITS) | targetCircuitId;
+		key = (key << COLOR_BITS) | color;
+		return key;
+	}
+
+	private long[] slotKeys = new long[64];
+	private int[] slotWires = new int[64];
+
+	private int count = 0;
+	private double[] startXs = new double[32];
+	private double[] startYs = new double[32];
+	private double[] endXs = new double[32];
+	private double[] endYs = new double[32];
+	private byte[] colors = new byte[32];
+	private boolean[] paired = new boolean[32];
+
+	public WireMap() {
+		Arrays.fill(slotWires, -1);
+	}
+
+	/**
+	 * Adds an unpaired wire starting at the position, and returns its number.
+	 */
+	public int add(long key, Point2D.Double start, int color) {
+		if (count == startXs.length) {
+			int capacity = count * 2;
+			startXs = Arrays.copyOf(startXs, capacity);
+			startYs = Arrays.copyOf(startYs, capacity);
+			endXs = Arrays.copyOf(endXs, capacity);
+			endYs = Arrays.copyOf(endYs, capacity);
+			colors = Arrays.copyOf(colors, capacity);
+			paired = Arrays.copyOf(paired, capacity);
+		}
+		int wire = count++;
+		startXs[wire] = start.x;
+		startYs[wire] = start.y;
+		colors[wire] = (byte) color;
+
+		if (count * 2 > slotKeys.length) {
+			rehash(slotKeys.length * 2);
+		}
+		insert(key, wire);
+		return wire;
+	}
+
+	/**
+	 * The number of the wire with the key, or -1 if there is none.
+	 */
+	public int find(long key) {
+		int mask = slotKeys.length - 1;
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+			int wire = slotWires[slot];
+			if (wire == -1 || slotKeys[slot] == key) {
+				return wire;
+			}
+		}
+	}
+
+	public int getColor(int wire) {
+		return colors[wire];
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getEndX(int wire) {
+		return endXs[wire];
+	}
+
+	public double getEndY(int wire) {
+		return endYs[wire];
+	}
+
+	public double getStartX(int wire) {
+		return startXs[wire];
+	}
+
+	public double getStartY(int wire) {
+		return startYs[wire];
+	}
+
+	private void insert(long key, int wire) {
+		int mask = slotKeys.length - 1;
+		int slot = hash(key) & mask;
+		while (slotWires[slot] != -1) {
+			slot = (slot + 1) & mask;
+		}
+		slotKeys[slot] = key;
+		slotWires[slot] = wire;
+	}
+
+	public boolean isPaired(int wire) {
+		return paired[wire];
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = slotKeys;
+		int[] oldWires = slotWires;
+		slotKeys = new long[capacity];
+		slotWires = new int[capacity];
+		Arrays.fill(slotWires, -1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldWires[i] != -1) {
+				insert(oldKeys[i], oldWires[i]);
+			}
+		}
+	}
+
+	public void setEnd(int wire, Point2D.Double end) {
+		endXs[wire] = end.x;
+		endYs[wire] = end.y;
+		paired[wire] = true;
+	}
+}
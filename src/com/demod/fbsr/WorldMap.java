@@ -2,14 +2,12 @@ package com.demod.fbsr;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Point2D.Double;
+import java.awt.geom.Rectangle2D;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
@@ -220,59 +218,130 @@ public class WorldMap {
 		}
 	}
 
-	// XXX Hash-based tables are not the most efficient here
-	// Row: X
-	// Column: Y
-	private final Table<Integer, Integer, BeltCell> belts = HashBasedTable.create();
-	private final Table<Integer, Integer, Integer> pipes = HashBasedTable.create();
-	private final Table<Integer, Integer, Integer> heatPipes = HashBasedTable.create();
-	private final Table<Integer, Integer, Object> walls = HashBasedTable.create();
-	private final Table<Integer, Integer, Boolean> gates = HashBasedTable.create();
-	private final Table<Integer, Integer, Entry<String, Direction>> undergroundBeltEndings = HashBasedTable.create();
-	private final Table<Integer, Integer, List<BlueprintEntity>> beaconed = HashBasedTable.create();
+	// Bits of the tile flags, pipes keep a bit per cardinal direction they
+	// connect towards
+	private static final int PIPE_SHIFT = 0;
+	private static final int HEAT_PIPE_SHIFT = 4;
+	private static final int PIPE_MASK = 0b1111 << PIPE_SHIFT;
+	private static final int HEAT_PIPE_MASK = 0b1111 << HEAT_PIPE_SHIFT;
+	private static final int WALL_SHIFT = 8;
+	private static final int HORIZONTAL_GATE_SHIFT = 9;
+	private static final int VERTICAL_GATE_SHIFT = 10;
+	private static final int GATE_MASK = (1 << HORIZONTAL_GATE_SHIFT) | (1 << VERTICAL_GATE_SHIFT);
+
+	// Indexed by tile X, Y
+	private final ChunkedBitGrid tileFlags = new ChunkedBitGrid(16);
+	private final ChunkedObjectGrid<BeltCell> belts = new ChunkedObjectGrid<>();
+	private final ChunkedObjectGrid<Entry<String, Direction>> undergroundBeltEndings = new ChunkedObjectGrid<>();
+
+	private final BeaconCoverage beaconCoverage = new BeaconCoverage();
+
+	private final ItemRegistry itemRegistry;
 
 	// Row: X*2
 	// Column: Y*2
 	private final Table<Integer, Integer, LogisticGridCell> logisticGrid = HashBasedTable.create();
 	private final Table<Integer, Integer, RailNode> railNodes = HashBasedTable.create();
 
-	// Key: "eid1|cid1|eid2|cid2|color"
-	private final Map<String, Entry<Point2D.Double, Point2D.Double>> wires = new LinkedHashMap<>();
+	private final WireMap wires = new WireMap();
 
 	private final List<Entry<RailEdge, RailEdge>> railEdges = new ArrayList<>();
 
 	private boolean newFormatDetected = false;
 
-	private int flag(Direction facing) {
+	public WorldMap() {
+		this(new ItemRegistry());
+	}
+
+	/**
+	 * Shares the item IDs of the registry, such as those of the logistic grid
+	 * cells of a previous map.
+	 */
+	public WorldMap(ItemRegistry itemRegistry) {
+		this.itemRegistry = itemRegistry;
+	}
+
+	private static int flag(Direction facing) {
 		return 1 << facing.cardinal();
 	}
 
-	public Optional<List<BlueprintEntity>> getBeaconed(Point2D.Double pos) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		return Optional.ofNullable(beaconed.get(kr, kc));
+	private static int flags(Direction... facings) {
+		if (facings.length == 0) {
+			return 0b1111;
+		}
+		int flags = 0;
+		for (Direction facing : facings) {
+			flags |= flag(facing);
+		}
+		return flags;
+	}
+
+	/**
+	 * The half tile index of a coordinate, as used by the logistic grid.
+	 */
+	public static int halfTile(double coord) {
+		return (int) Math.floor(coord * 2);
+	}
+
+	/**
+	 * The tile index of a coordinate.
+	 */
+	public static int tile(double coord) {
+		return (int) Math.floor(coord);
+	}
+
+	/**
+	 * Cardinal bits of the neighbours that have their direction bit of the
+	 * layer at the shift set towards this tile.
+	 */
+	private int facingMe(int x, int y, int shift) {
+		return ((tileFlags.get(x, y - 1) >>> (shift + 2)) & 1)
+				| (((tileFlags.get(x + 1, y) >>> (shift + 3)) & 1) << 1)
+				| (((tileFlags.get(x, y + 1) >>> shift) & 1) << 2)
+				| (((tileFlags.get(x - 1, y) >>> (shift + 1)) & 1) << 3);
+	}
+
+	/**
+	 * Beacons supplying the tiles at any of the positions, each listed once.
+	 */
+	public List<BlueprintEntity> getBeacons(Point2D.Double... positions) {
+		int[] tileXs = new int[positions.length];
+		int[] tileYs = new int[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			tileXs[i] = tile(positions[i].x);
+			tileYs[i] = tile(positions[i].y);
+		}
+		return beaconCoverage.getBeacons(tileXs, tileYs);
+	}
+
+	/**
+	 * The belt on the tile, or null if there is none.
+	 */
+	public BeltCell getBelt(int x, int y) {
+		return belts.get(x, y);
 	}
 
 	public Optional<BeltCell> getBelt(Point2D.Double pos) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		return Optional.ofNullable(belts.get(kr, kc));
+		return Optional.ofNullable(getBelt(tile(pos.x), tile(pos.y)));
 	}
 
-	public Optional<BeltBend> getBeltBend(Point2D.Double pos) {
-		return getBelt(pos).map(b -> {
-			return getBeltBend(pos, b);
-		});
+	/**
+	 * How the belt on the tile bends, or {@link BeltBend#NONE} if there is no
+	 * belt.
+	 */
+	public BeltBend getBeltBend(int x, int y) {
+		BeltCell belt = belts.get(x, y);
+		return belt == null ? BeltBend.NONE : getBeltBend(x, y, belt);
 	}
 
-	public BeltBend getBeltBend(Point2D.Double pos, BeltCell belt) {
+	public BeltBend getBeltBend(int x, int y, BeltCell belt) {
 		if (!belt.bendable) {
 			return BeltBend.NONE;
 		}
 
-		boolean left = isBeltFacingMeFrom(pos, belt.facing.left());
-		boolean right = isBeltFacingMeFrom(pos, belt.facing.right());
-		boolean back = isBeltFacingMeFrom(pos, belt.facing.back());
+		boolean left = isBeltFacingMeFrom(x, y, belt.facing.left());
+		boolean right = isBeltFacingMeFrom(x, y, belt.facing.right());
+		boolean back = isBeltFacingMeFrom(x, y, belt.facing.back());
 
 		if (back || (left && right)) {
 			return BeltBend.NONE;
@@ -285,10 +354,47 @@ public class WorldMap {
 		}
 	}
 
+	public Optional<BeltBend> getBeltBend(Point2D.Double pos) {
+		return getBelt(pos).map(b -> getBeltBend(pos, b));
+	}
+
+	public BeltBend getBeltBend(Point2D.Double pos, BeltCell belt) {
+		return getBeltBend(tile(pos.x), tile(pos.y), belt);
+	}
+
 	public Optional<Direction> getBeltFacing(Point2D.Double pos) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		return Optional.ofNullable(belts.get(kr, kc)).map(BeltCell::getFacing);
+		return getBelt(pos).map(BeltCell::getFacing);
+	}
+
+	/**
+	 * Cardinal bits of the neighbouring gates that a wall on this tile connects
+	 * to, vertical gates to the north and south and horizontal gates to the
+	 * east and west.
+	 */
+	public int getGateConnections(int x, int y) {
+		int vertical = neighbourBits(x, y, VERTICAL_GATE_SHIFT);
+		int horizontal = neighbourBits(x, y, HORIZONTAL_GATE_SHIFT);
+		return (vertical & 0b0101) | (horizontal & 0b1010);
+	}
+
+	public int getGateConnections(Point2D.Double pos) {
+		return getGateConnections(tile(pos.x), tile(pos.y));
+	}
+
+	/**
+	 * Cardinal bits of the neighbouring heat pipes that connect towards this
+	 * tile.
+	 */
+	public int getHeatPipeConnections(int x, int y) {
+		return facingMe(x, y, HEAT_PIPE_SHIFT);
+	}
+
+	public int getHeatPipeConnections(Point2D.Double pos) {
+		return getHeatPipeConnections(tile(pos.x), tile(pos.y));
+	}
+
+	public ItemRegistry getItemRegistry() {
+		return itemRegistry;
 	}
 
 	public Point2D.Double getLogisticCellPosition(Cell<Integer, Integer, LogisticGridCell> c) {
@@ -299,10 +405,15 @@ public class WorldMap {
 		return logisticGrid;
 	}
 
+	/**
+	 * The logistic grid cell at the half tile, or null if there is none.
+	 */
+	public LogisticGridCell getLogisticGridCell(int halfX, int halfY) {
+		return logisticGrid.get(halfX, halfY);
+	}
+
 	public Optional<LogisticGridCell> getLogisticGridCell(Point2D.Double pos) {
-		int kr = (int) Math.floor(pos.x * 2);
-		int kc = (int) Math.floor(pos.y * 2);
-		return Optional.ofNullable(logisticGrid.get(kr, kc));
+		return Optional.ofNullable(getLogisticGridCell(halfTile(pos.x), halfTile(pos.y)));
 	}
 
 	public LogisticGridCell getOrCreateLogisticGridCell(Point2D.Double pos) {
@@ -310,7 +421,7 @@ public class WorldMap {
 		int kc = (int) Math.floor(pos.y * 2);
 		LogisticGridCell ret = logisticGrid.get(kr, kc);
 		if (ret == null) {
-			logisticGrid.put(kr, kc, ret = new LogisticGridCell());
+			logisticGrid.put(kr, kc, ret = new LogisticGridCell(itemRegistry));
 		}
 		return ret;
 	}
@@ -325,6 +436,17 @@ public class WorldMap {
 		return ret;
 	}
 
+	/**
+	 * Cardinal bits of the neighbouring pipes that connect towards this tile.
+	 */
+	public int getPipeConnections(int x, int y) {
+		return facingMe(x, y, PIPE_SHIFT);
+	}
+
+	public int getPipeConnections(Point2D.Double pos) {
+		return getPipeConnections(tile(pos.x), tile(pos.y));
+	}
+
 	public List<Entry<RailEdge, RailEdge>> getRailEdges() {
 		return railEdges;
 	}
@@ -339,98 +461,118 @@ public class WorldMap {
 		return railNodes;
 	}
 
-	public Entry<Point2D.Double, Point2D.Double> getWire(String key) {
-		return wires.get(key);
+	/**
+	 * Cardinal bits of the neighbouring walls and matching gates that a wall
+	 * on this tile connects to.
+	 */
+	public int getWallConnections(int x, int y) {
+		return neighbourBits(x, y, WALL_SHIFT) | getGateConnections(x, y);
 	}
 
-	public Map<String, Entry<Point2D.Double, Point2D.Double>> getWires() {
+	public int getWallConnections(Point2D.Double pos) {
+		return getWallConnections(tile(pos.x), tile(pos.y));
+	}
+
+	public WireMap getWires() {
 		return wires;
 	}
 
-	public boolean hasWire(String key) {
-		return wires.containsKey(key);
+	/**
+	 * Whether the belt on the neighbouring tile in the direction feeds into
+	 * this tile.
+	 */
+	public boolean isBeltFacingMeFrom(int x, int y, Direction dir) {
+		BeltCell belt = belts.get(dir.offsetX(x), dir.offsetY(y));
+		return belt != null && belt.bendOthers && belt.facing == dir.back();
 	}
 
 	public boolean isBeltFacingMeFrom(Point2D.Double pos, Direction dir) {
-		return getBelt(dir.offset(pos)).filter(b -> b.bendOthers).map(b -> b.facing)
-				.map(d -> pos.distance(d.offset(dir.offset(pos))) < 0.1).orElse(false);
+		return isBeltFacingMeFrom(tile(pos.x), tile(pos.y), dir);
+	}
+
+	public boolean isHeatPipe(int x, int y, Direction facing) {
+		return (tileFlags.get(x, y) & (flag(facing) << HEAT_PIPE_SHIFT)) != 0;
 	}
 
 	public boolean isHeatPipe(Point2D.Double pos, Direction facing) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		return heatPipes.contains(kr, kc) && (heatPipes.get(kr, kc) & flag(facing)) > 0;
+		return isHeatPipe(tile(pos.x), tile(pos.y), facing);
 	}
 
 	public boolean isHorizontalGate(Point2D.Double pos) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		return gates.contains(kr, kc) && (gates.get(kr, kc) == false);
+		return ((tileFlags.get(kr, kc) >>> HORIZONTAL_GATE_SHIFT) & 1) != 0;
+	}
+
+	public boolean isMatchingUndergroundBeltEnding(String name, int x, int y, Direction dir) {
+		Entry<String, Direction> ending = undergroundBeltEndings.get(x, y);
+		return ending != null && ending.getKey().equals(name) && ending.getValue() == dir;
 	}
 
 	public boolean isMatchingUndergroundBeltEnding(String name, Point2D.Double pos, Direction dir) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		return Optional.ofNullable(undergroundBeltEndings.get(kr, kc))
-				.filter(p -> p.getKey().equals(name) && p.getValue().ordinal() == dir.ordinal()).isPresent();
+		return isMatchingUndergroundBeltEnding(name, tile(pos.x), tile(pos.y), dir);
 	}
 
 	public boolean isNewFormatDetected() {
 		return newFormatDetected;
 	}
 
+	public boolean isPipe(int x, int y, Direction facing) {
+		return (tileFlags.get(x, y) & (flag(facing) << PIPE_SHIFT)) != 0;
+	}
+
 	public boolean isPipe(Point2D.Double pos, Direction facing) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		return pipes.contains(kr, kc) && (pipes.get(kr, kc) & flag(facing)) > 0;
+		return isPipe(tile(pos.x), tile(pos.y), facing);
 	}
 
 	public boolean isVerticalGate(Point2D.Double pos) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		return gates.contains(kr, kc) && (gates.get(kr, kc) == true);
+		return ((tileFlags.get(kr, kc) >>> VERTICAL_GATE_SHIFT) & 1) != 0;
 	}
 
 	public boolean isWall(Point2D.Double pos) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		return walls.contains(kr, kc);
+		return ((tileFlags.get(kr, kc) >>> WALL_SHIFT) & 1) != 0;
 	}
 
-	public void setBeaconed(Point2D.Double pos, BlueprintEntity beacon) {
-		int kr = (int) Math.floor(pos.x);
-		int kc = (int) Math.floor(pos.y);
-		List<BlueprintEntity> list = beaconed.get(kr, kc);
-		if (list == null) {
-			beaconed.put(kr, kc, list = new LinkedList<>());
-		}
-		list.add(beacon);
+	/**
+	 * Cardinal bits of the neighbours that have the bit at the shift set.
+	 */
+	private int neighbourBits(int x, int y, int shift) {
+		return ((tileFlags.get(x, y - 1) >>> shift) & 1) | (((tileFlags.get(x + 1, y) >>> shift) & 1) << 1)
+				| (((tileFlags.get(x, y + 1) >>> shift) & 1) << 2) | (((tileFlags.get(x - 1, y) >>> shift) & 1) << 3);
+	}
+
+	/**
+	 * Marks the tiles whose centers are inside the supply bounds as supplied by
+	 * the beacon.
+	 */
+	public void setBeaconed(Rectangle2D.Double supplyBounds, BlueprintEntity beacon) {
+		int minX = (int) Math.floor(supplyBounds.x + 0.5);
+		int minY = (int) Math.floor(supplyBounds.y + 0.5);
+		int width = (int) Math.max(0, Math.ceil(supplyBounds.width - 0.5));
+		int height = (int) Math.max(0, Math.ceil(supplyBounds.height - 0.5));
+		beaconCoverage.add(beacon, minX, minY, minX + width, minY + height);
 	}
 
 	public void setBelt(Point2D.Double pos, Direction facing, boolean bendable, boolean bendOthers) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		belts.put(kr, kc, new BeltCell(facing, bendable, bendOthers));
+		belts.set(kr, kc, new BeltCell(facing, bendable, bendOthers));
 	}
 
 	public void setHeatPipe(Point2D.Double pos, Direction... facings) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		int flags = 0;
-		if (facings.length == 0) {
-			flags = 0b1111;
-		} else {
-			for (Direction facing : facings) {
-				flags |= flag(facing);
-			}
-		}
-		heatPipes.put(kr, kc, flags);
+		tileFlags.clearAndSet(kr, kc, HEAT_PIPE_MASK, flags(facings) << HEAT_PIPE_SHIFT);
 	}
 
 	public void setHorizontalGate(Point2D.Double pos) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		gates.put(kr, kc, false);
+		tileFlags.clearAndSet(kr, kc, GATE_MASK, 1 << HORIZONTAL_GATE_SHIFT);
 	}
 
 	public void setNewFormatDetected(boolean newFormatDetected) {
@@ -440,15 +582,7 @@ public class WorldMap {
 	public void setPipe(Point2D.Double pos, Direction... facings) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		int flags = 0;
-		if (facings.length == 0) {
-			flags = 0b1111;
-		} else {
-			for (Direction facing : facings) {
-				flags |= flag(facing);
-			}
-		}
-		pipes.put(kr, kc, flags);
+		tileFlags.clearAndSet(kr, kc, PIPE_MASK, flags(facings) << PIPE_SHIFT);
 	}
 
 	public void setRailEdge(Double p1, Direction d1, Double p2, Direction d2, boolean curved) {
@@ -466,22 +600,18 @@ public class WorldMap {
 	public void setUndergroundBeltEnding(String name, Point2D.Double pos, Direction dir) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		undergroundBeltEndings.put(kr, kc, new SimpleEntry<>(name, dir));
+		undergroundBeltEndings.set(kr, kc, new SimpleEntry<>(name, dir));
 	}
 
 	public void setVerticalGate(Point2D.Double pos) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		gates.put(kr, kc, true);
+		tileFlags.clearAndSet(kr, kc, GATE_MASK, 1 << VERTICAL_GATE_SHIFT);
 	}
 
 	public void setWall(Point2D.Double pos) {
 		int kr = (int) Math.floor(pos.x);
 		int kc = (int) Math.floor(pos.y);
-		walls.put(kr, kc, pos);
-	}
-
-	public void setWire(String key, Entry<Point2D.Double, Point2D.Double> pair) {
-		wires.put(key, pair);
+		tileFlags.clearAndSet(kr, kc, 1 << WALL_SHIFT, 1 << WALL_SHIFT);
 	}
 }
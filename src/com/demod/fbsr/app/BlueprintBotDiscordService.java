@@ -1,6 +1,5 @@
 package com.demod.fbsr.app;
 
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
@@ -551,19 +550,18 @@ public class BlueprintBotDiscordService extends AbstractIdleService {
 
 		List<EmbedBuilder> embedBuilders = new ArrayList<>();
 
-		List<Entry<Optional<String>, BufferedImage>> images = new ArrayList<>();
+		// Image links and their labels, uploaded as each page is rendered
+		List<Entry<String, String>> imageLinks = new ArrayList<>();
 
+		List<Blueprint> blueprints = new ArrayList<>();
 		for (BlueprintStringData blueprintString : blueprintStrings) {
 			System.out.println("Parsing blueprints: " + blueprintString.getBlueprints().size());
-			for (Blueprint blueprint : blueprintString.getBlueprints()) {
-				try {
-					BufferedImage image = FBSR.renderBlueprint(blueprint, reporting, options);
-					images.add(new SimpleEntry<>(blueprint.getLabel(), image));
-				} catch (Exception e) {
-					reporting.addException(e);
-				}
-			}
+			blueprints.addAll(blueprintString.getBlueprints());
 		}
+		FBSR.renderBook(blueprints, reporting, options, (i, image) -> {
+			imageLinks.add(new SimpleEntry<>(WebUtils.uploadToHostingService("blueprint.png", image),
+					blueprints.get(i).getLabel().orElse("")));
+		});
 
 		List<Long> renderTimes = blueprintStrings.stream().flatMap(d -> d.getBlueprints().stream())
 				.flatMap(b -> (b.getRenderTime().isPresent() ? Arrays.asList(b.getRenderTime().getAsLong())
@@ -578,28 +576,18 @@ public class BlueprintBotDiscordService extends AbstractIdleService {
 					true));
 		}
 
-		if (images.size() == 0) {
+		if (imageLinks.size() == 0) {
 			embedBuilders.add(new EmbedBuilder().setDescription("Blueprint not found!"));
 
-		} else if (images.size() == 1) {
-			Entry<Optional<String>, BufferedImage> entry = images.get(0);
-			BufferedImage image = entry.getValue();
-			String url = WebUtils.uploadToHostingService("blueprint.png", image);
+		} else if (imageLinks.size() == 1) {
 			EmbedBuilder builder = new EmbedBuilder();
-			builder.setImage(url);
+			builder.setImage(imageLinks.get(0).getKey());
 			embedBuilders.add(builder);
 
 		} else {
-			List<Entry<String, String>> links = new ArrayList<>();
-			for (Entry<Optional<String>, BufferedImage> entry : images) {
-				BufferedImage image = entry.getValue();
-				links.add(new SimpleEntry<>(WebUtils.uploadToHostingService("blueprint.png", image),
-						entry.getKey().orElse("")));
-			}
-
 			ArrayDeque<String> lines = new ArrayDeque<>();
-			for (int i = 0; i < links.size(); i++) {
-				Entry<String, String> entry = links.get(i);
+			for (int i = 0; i < imageLinks.size(); i++) {
+				Entry<String, String> entry = imageLinks.get(i);
 				if (entry.getValue() != null && !entry.getValue().trim().isEmpty()) {
 					lines.add("[" + entry.getValue().trim() + "](" + entry.getKey() + ")");
 				} else {
@@ -1,6 +1,5 @@
 package com.demod.fbsr.app;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
@@ -148,16 +147,19 @@ public class BlueprintBotRedditService extends AbstractScheduledService {
 			List<Blueprint> blueprints = blueprintStrings.stream().flatMap(s -> s.getBlueprints().stream())
 					.collect(Collectors.toList());
 
-			for (Blueprint blueprint : blueprints) {
+			// Each page keeps the watchdog from counting a long book as inactive
+			FBSR.renderBook(blueprints, reporting, new JSONObject(), (i, image) -> {
 				watchdog.ifPresent(w -> w.notifyActive(WATCHDOG_LABEL));
 				try {
-					BufferedImage image = FBSR.renderBlueprint(blueprint, reporting);
-					imageLinks.add(new SimpleEntry<>(blueprint.getLabel(),
+					imageLinks.add(new SimpleEntry<>(blueprints.get(i).getLabel(),
 							WebUtils.uploadToHostingService("blueprint.png", image).toString()));
 				} catch (Exception e) {
-					reporting.addException(e);
+					// Pages still rendering report to the same reporting
+					synchronized (reporting) {
+						reporting.addException(e);
+					}
 				}
-			}
+			});
 
 			List<Long> renderTimes = blueprintStrings.stream().flatMap(d -> d.getBlueprints().stream())
 					.flatMap(b -> (b.getRenderTime().isPresent() ? Arrays.asList(b.getRenderTime().getAsLong())
@@ -1,9 +1,12 @@
 package com.demod.fbsr.app;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
@@ -39,21 +42,25 @@ public class WebAPIService extends AbstractIdleService {
 
 	private JSONObject configJson;
 
-	private String saveToLocalStorage(File folder, BufferedImage image) throws IOException {
+	private File createLocalStorageFile(File folder) {
 		if (!folder.exists()) {
 			folder.mkdirs();
 		}
 
 		File imageFile;
 		long id = System.currentTimeMillis();
-		String fileName;
-		while ((imageFile = new File(folder, fileName = "Blueprint" + id + ".png")).exists()) {
+		while ((imageFile = new File(folder, "Blueprint" + id + ".png")).exists()) {
 			id++;
 		}
+		return imageFile;
+	}
+
+	private String saveToLocalStorage(File folder, BufferedImage image) throws IOException {
+		File imageFile = createLocalStorageFile(folder);
 
 		ImageIO.write(image, "PNG", imageFile);
 
-		return fileName;
+		return imageFile.getName();
 	}
 
 	@Override
@@ -85,7 +92,7 @@ public class WebAPIService extends AbstractIdleService {
 					null, Instant.now());
 			try {
 				JSONObject body = null;
-				BufferedImage returnSingleImage = null;
+				FBSR.ReservedImage returnSingleImage = null;
 
 				List<String> infos = new ArrayList<>();
 				List<Entry<Optional<String>, String>> imageLinks = new ArrayList<>();
@@ -112,7 +119,7 @@ public class WebAPIService extends AbstractIdleService {
 
 					/*
 					 * { "blueprint": "0e...", (required) "max-width": 1234, "max-height": 1234,
-					 * "show-info-panels": false } | v { "info": [ "message 1!", "message 2!", ...
+					 * "show-info-panels": false, "tiled": false } | v { "info": [ "message 1!", "message 2!", ...
 					 * ], "images": [ { "label": "Blueprint Label", "link":
 					 * "https://cdn.discordapp.com/..." (or) "1563569893008.png" } ] }
 					 */
@@ -123,26 +130,58 @@ public class WebAPIService extends AbstractIdleService {
 					List<Blueprint> blueprints = blueprintStrings.stream().flatMap(s -> s.getBlueprints().stream())
 							.collect(Collectors.toList());
 
-					for (Blueprint blueprint : blueprints) {
-						try {
-							BufferedImage image = FBSR.renderBlueprint(blueprint, reporting, body);
-
-							if (body.optBoolean("return-single-image")) {
-								returnSingleImage = image;
+					// Pages are rendered together and stored as they finish, except full
+					// resolution renders, which are streamed to disk one at a time, and single
+					// images, which only need the first page that renders. Full resolution
+					// renders are only allowed up to the configured size, and not at all
+					// without one.
+					long tiledMaxPixels = configJson.optLong("tiled-max-megapixels", 0) * 1000000;
+					boolean tiled = useLocalStorage && tiledMaxPixels > 0 && body.optBoolean("tiled");
+					boolean singleImage = body.optBoolean("return-single-image");
+					if (tiled || singleImage) {
+						for (Blueprint blueprint : blueprints) {
+							try {
+								// Full resolution renders are streamed straight to disk
+								if (tiled) {
+									File localStorageFolder = new File(configJson.getString("local-storage"));
+									File imageFile = createLocalStorageFile(localStorageFolder);
+									try (OutputStream out = new BufferedOutputStream(
+											new FileOutputStream(imageFile))) {
+										FBSR.renderBlueprintTiled(blueprint, reporting, body, tiledMaxPixels, out);
+									} catch (Exception e) {
+										imageFile.delete();
+										throw e;
+									}
+									imageLinks.add(new SimpleEntry<>(blueprint.getLabel(), imageFile.getName()));
+									continue;
+								}
+
+								// Kept reserved until it has been written to the response
+								returnSingleImage = FBSR.renderBlueprintReserved(blueprint, reporting, body);
 								break;
+							} catch (Exception e) {
+								reporting.addException(e);
 							}
-
-							if (useLocalStorage) {
-								File localStorageFolder = new File(configJson.getString("local-storage"));
-								String imageLink = saveToLocalStorage(localStorageFolder, image);
-								imageLinks.add(new SimpleEntry<>(blueprint.getLabel(), imageLink));
-							} else {
-								imageLinks.add(new SimpleEntry<>(blueprint.getLabel(),
-										WebUtils.uploadToHostingService("blueprint.png", image).toString()));
-							}
-						} catch (Exception e) {
-							reporting.addException(e);
 						}
+					} else {
+						FBSR.renderBook(blueprints, reporting, body, (i, image) -> {
+							Blueprint blueprint = blueprints.get(i);
+							try {
+								if (useLocalStorage) {
+									File localStorageFolder = new File(configJson.getString("local-storage"));
+									String imageLink = saveToLocalStorage(localStorageFolder, image);
+									imageLinks.add(new SimpleEntry<>(blueprint.getLabel(), imageLink));
+								} else {
+									imageLinks.add(new SimpleEntry<>(blueprint.getLabel(),
+											WebUtils.uploadToHostingService("blueprint.png", image).toString()));
+								}
+							} catch (Exception e) {
+								// Pages still rendering report to the same reporting
+								synchronized (reporting) {
+									reporting.addException(e);
+								}
+							}
+						});
 					}
 
 					List<Long> renderTimes = blueprintStrings.stream().flatMap(d -> d.getBlueprints().stream())
@@ -169,8 +208,9 @@ public class WebAPIService extends AbstractIdleService {
 
 				if (returnSingleImage != null) {
 					resp.contentType(MediaType.IMAGE_PNG);
-					try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-						ImageIO.write(returnSingleImage, "PNG", baos);
+					try (FBSR.ReservedImage image = returnSingleImage;
+							ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+						ImageIO.write(image.getImage(), "PNG", baos);
 						baos.flush();
 						resp.body(baos.toByteArray());
 					}
@@ -40,7 +40,7 @@ public class AssemblingMachineRendering extends EntityRendererFactory {
 
 		Sprite spriteIcon = new Sprite();
 
-		String recipe = entity.json().optString("recipe", null);
+		String recipe = entity.getRecipe();
 		if (recipe != null) {
 			Optional<RecipePrototype> optRecipe = dataTable.getRecipe(recipe);
 			if (optRecipe.isPresent()) {
@@ -114,7 +114,7 @@ public class AssemblingMachineRendering extends EntityRendererFactory {
 
 	@Override
 	public void populateLogistics(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
-		String recipeName = entity.json().optString("recipe", null);
+		String recipeName = entity.getRecipe();
 		if (recipeName != null) {
 			Optional<RecipePrototype> optRecipe = dataTable.getRecipe(recipeName);
 			if (optRecipe.isPresent()) {
@@ -126,7 +126,7 @@ public class AssemblingMachineRendering extends EntityRendererFactory {
 
 	@Override
 	public void populateWorldMap(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
-		String recipeName = entity.json().optString("recipe", null);
+		String recipeName = entity.getRecipe();
 		boolean hasFluid = false;
 		if (recipeName != null) {
 			Optional<RecipePrototype> optRecipe = dataTable.getRecipe(recipeName);
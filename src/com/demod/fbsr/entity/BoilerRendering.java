@@ -30,7 +30,8 @@ public class BoilerRendering extends EntityRendererFactory {
 	}
 
 	public boolean pipeFacingMeFrom(Direction direction, WorldMap map, BlueprintEntity entity) {
-		return map.isPipe(direction.offset(entity.getPosition()), direction.back());
+		return map.isPipe(direction.offsetX(WorldMap.tile(entity.getX())),
+				direction.offsetY(WorldMap.tile(entity.getY())), direction.back());
 	}
 
 	@Override
@@ -8,7 +8,6 @@ import java.util.stream.Collectors;
 import com.demod.factorio.DataTable;
 import com.demod.factorio.prototype.EntityPrototype;
 import com.demod.fbsr.BlueprintEntity;
-import com.demod.fbsr.Direction;
 import com.demod.fbsr.EntityRendererFactory;
 import com.demod.fbsr.RenderUtils;
 import com.demod.fbsr.Renderer;
@@ -42,20 +41,12 @@ public class HeatPipeRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		int adjCode = 0;
-		adjCode |= ((heatPipeFacingMeFrom(Direction.NORTH, map, entity) ? 1 : 0) << 0);
-		adjCode |= ((heatPipeFacingMeFrom(Direction.EAST, map, entity) ? 1 : 0) << 1);
-		adjCode |= ((heatPipeFacingMeFrom(Direction.SOUTH, map, entity) ? 1 : 0) << 2);
-		adjCode |= ((heatPipeFacingMeFrom(Direction.WEST, map, entity) ? 1 : 0) << 3);
+		int adjCode = map.getHeatPipeConnections(WorldMap.tile(entity.getX()), WorldMap.tile(entity.getY()));
 		SpriteDef sprite = protoPipeSprites.get(adjCode);
 
 		register.accept(RenderUtils.spriteDefRenderer(sprite, entity, protoSelectionBox));
 	}
 
-	public boolean heatPipeFacingMeFrom(Direction direction, WorldMap map, BlueprintEntity entity) {
-		return map.isHeatPipe(direction.offset(entity.getPosition()), direction.back());
-	}
-
 	@Override
 	public void initFromPrototype(DataTable dataTable, EntityPrototype prototype) {
 		super.initFromPrototype(dataTable, prototype);
@@ -6,10 +6,9 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
 
 import org.json.JSONObject;
@@ -69,10 +68,10 @@ public class InfinityContainerRendering extends EntityRendererFactory {
 
 		if (entity.json().has("infinity_settings") && entity.json().getJSONObject("infinity_settings").has("filters")) {
 
-			Set<String> outputs = new LinkedHashSet<>();
+			BitSet outputs = new BitSet();
 			Utils.<JSONObject>forEach(entity.json().getJSONObject("infinity_settings").getJSONArray("filters"), j -> {
 				if (j.getInt("count") > 0)
-					outputs.add(j.getString("name"));
+					outputs.set(map.getItemRegistry().getId(j.getString("name")));
 			});
 
 			map.getOrCreateLogisticGridCell(Direction.NORTHEAST.offset(pos, 0.25)).setOutputs(Optional.of(outputs));
@@ -103,8 +103,8 @@ public class InserterRendering extends EntityRendererFactory {
 				AffineTransform pat = g.getTransform();
 
 				Rectangle2D.Double bounds = protoSpriteArmHand.getBounds().createRect();
-				Rectangle source = protoSpriteArmHand.getSource();
-				BufferedImage image = protoSpriteArmHand.getImage();
+				Rectangle source = protoSpriteArmHand.getDrawSource();
+				BufferedImage image = protoSpriteArmHand.getDrawImage();
 
 				g.translate(pos.x, pos.y);
 				g.rotate(dir.back().ordinal() * Math.PI / 4.0);
@@ -122,8 +122,8 @@ public class InserterRendering extends EntityRendererFactory {
 				AffineTransform pat = g.getTransform();
 
 				Rectangle2D.Double bounds = protoGrabMarkerSprite.getBounds().createRect();
-				Rectangle source = protoGrabMarkerSprite.getSource();
-				BufferedImage image = protoGrabMarkerSprite.getImage();
+				Rectangle source = protoGrabMarkerSprite.getDrawSource();
+				BufferedImage image = protoGrabMarkerSprite.getDrawImage();
 
 				double pickupRotate = Math.atan2(pickupPos.y, pickupPos.x);
 
@@ -159,8 +159,8 @@ public class InserterRendering extends EntityRendererFactory {
 				AffineTransform pat = g.getTransform();
 
 				Rectangle2D.Double bounds = protoPlaceMarkerSprite.getBounds().createRect();
-				Rectangle source = protoPlaceMarkerSprite.getSource();
-				BufferedImage image = protoPlaceMarkerSprite.getImage();
+				Rectangle source = protoPlaceMarkerSprite.getDrawSource();
+				BufferedImage image = protoPlaceMarkerSprite.getDrawImage();
 
 				double insertRotate = Math.atan2(insertPos.y, insertPos.x);
 
@@ -252,11 +252,13 @@ public class InserterRendering extends EntityRendererFactory {
 
 		Direction cellDir;
 
-		Optional<BeltCell> belt = map.getBelt(outPos);
-		if (belt.isPresent()) {
-			BeltBend bend = map.getBeltBend(outPos, belt.get());
+		int outX = WorldMap.tile(outPos.x);
+		int outY = WorldMap.tile(outPos.y);
+		BeltCell belt = map.getBelt(outX, outY);
+		if (belt != null) {
+			BeltBend bend = map.getBeltBend(outX, outY, belt);
 			cellDir = dir.back().rotate(
-					placeItemDir[belt.get().getFacing().rotate(-dir.back().ordinal()).cardinal()][bend.ordinal()]);
+					placeItemDir[belt.getFacing().rotate(-dir.back().ordinal()).cardinal()][bend.ordinal()]);
 		} else {
 			cellDir = dir.frontRight();
 		}
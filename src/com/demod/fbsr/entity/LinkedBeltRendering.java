@@ -24,7 +24,7 @@ public class LinkedBeltRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 		Direction structDir = input ? entity.getDirection() : entity.getDirection().back();
 
 		SpriteDef beltSprite = protoBeltSprites[entity.getDirection().cardinal()][BeltBend.NONE.ordinal()];
@@ -6,10 +6,9 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
 
 import org.json.JSONObject;
@@ -41,7 +40,7 @@ public class LoaderRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 		Direction structDir = input ? entity.getDirection() : entity.getDirection().back();
 
 		Point2D.Double beltShift = getBeltShift(entity);
@@ -86,14 +85,14 @@ public class LoaderRendering extends EntityRendererFactory {
 	}
 
 	private Point2D.Double getBeltShift(BlueprintEntity entity) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 		Direction oppositeStructDir = input ? entity.getDirection().back() : entity.getDirection();
 		return new Point2D.Double(protoBeltDistance * oppositeStructDir.getDx(),
 				protoBeltDistance * oppositeStructDir.getDy());
 	}
 
 	private Point2D.Double getContainerShift(BlueprintEntity entity, double offset) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 		Direction structDir = input ? entity.getDirection() : entity.getDirection().back();
 		double containerDistance = protoContainerDistance;
 		containerDistance += offset;
@@ -119,7 +118,7 @@ public class LoaderRendering extends EntityRendererFactory {
 		Point2D.Double pos = entity.getPosition();
 		Point2D.Double beltShift = getBeltShift(entity);
 		Point2D.Double containerShift = getContainerShift(entity, -0.5);
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 
 		if (input) {
 			Point2D.Double inPos = new Point2D.Double(pos.x + beltShift.x, pos.y + beltShift.y);
@@ -175,9 +174,9 @@ public class LoaderRendering extends EntityRendererFactory {
 
 		if (entity.json().has("filters") && !input) {
 
-			Set<String> outputs = new LinkedHashSet<>();
+			BitSet outputs = new BitSet();
 			Utils.<JSONObject>forEach(entity.json().getJSONArray("filters"), j -> {
-				outputs.add(j.getString("name"));
+				outputs.set(map.getItemRegistry().getId(j.getString("name")));
 			});
 
 			map.getOrCreateLogisticGridCell(
@@ -191,7 +190,7 @@ public class LoaderRendering extends EntityRendererFactory {
 
 	@Override
 	public void populateWorldMap(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 		Point2D.Double beltShift = getBeltShift(entity);
 
 		if (input) {
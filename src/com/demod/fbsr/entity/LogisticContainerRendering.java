@@ -6,10 +6,9 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
 
 import org.json.JSONObject;
@@ -70,9 +69,9 @@ public class LogisticContainerRendering extends EntityRendererFactory {
 		// TODO new format
 		if (!entity.isJsonNewFormat() && entity.json().has("request_filters")) {
 
-			Set<String> outputs = new LinkedHashSet<>();
+			BitSet outputs = new BitSet();
 			Utils.<JSONObject>forEach(entity.json().getJSONArray("request_filters"), j -> {
-				outputs.add(j.getString("name"));
+				outputs.set(map.getItemRegistry().getId(j.getString("name")));
 			});
 
 			map.getOrCreateLogisticGridCell(Direction.NORTHEAST.offset(pos, 0.25)).setOutputs(Optional.of(outputs));
@@ -8,7 +8,6 @@ import java.util.stream.Collectors;
 import com.demod.factorio.DataTable;
 import com.demod.factorio.prototype.EntityPrototype;
 import com.demod.fbsr.BlueprintEntity;
-import com.demod.fbsr.Direction;
 import com.demod.fbsr.EntityRendererFactory;
 import com.demod.fbsr.RenderUtils;
 import com.demod.fbsr.Renderer;
@@ -42,11 +41,7 @@ public class PipeRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		int adjCode = 0;
-		adjCode |= ((pipeFacingMeFrom(Direction.NORTH, map, entity) ? 1 : 0) << 0);
-		adjCode |= ((pipeFacingMeFrom(Direction.EAST, map, entity) ? 1 : 0) << 1);
-		adjCode |= ((pipeFacingMeFrom(Direction.SOUTH, map, entity) ? 1 : 0) << 2);
-		adjCode |= ((pipeFacingMeFrom(Direction.WEST, map, entity) ? 1 : 0) << 3);
+		int adjCode = map.getPipeConnections(WorldMap.tile(entity.getX()), WorldMap.tile(entity.getY()));
 		SpriteDef sprite = protoPipeSprites.get(adjCode);
 
 		register.accept(RenderUtils.spriteDefRenderer(sprite, entity, protoSelectionBox));
@@ -61,10 +56,6 @@ public class PipeRendering extends EntityRendererFactory {
 				.collect(Collectors.toList());
 	}
 
-	public boolean pipeFacingMeFrom(Direction direction, WorldMap map, BlueprintEntity entity) {
-		return map.isPipe(direction.offset(entity.getPosition()), direction.back());
-	}
-
 	@Override
 	public void populateWorldMap(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
 		map.setPipe(entity.getPosition());
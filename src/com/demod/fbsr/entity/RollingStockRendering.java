@@ -9,7 +9,6 @@ import java.util.function.Supplier;
 import org.luaj.vm2.LuaValue;
 
 import com.demod.factorio.DataTable;
-import com.demod.factorio.Utils;
 import com.demod.factorio.prototype.EntityPrototype;
 import com.demod.fbsr.BlueprintEntity;
 import com.demod.fbsr.EntityRendererFactory;
@@ -18,6 +17,7 @@ import com.demod.fbsr.Renderer;
 import com.demod.fbsr.Renderer.Layer;
 import com.demod.fbsr.Sprite;
 import com.demod.fbsr.SpriteDef;
+import com.demod.fbsr.TintedImageCache;
 import com.demod.fbsr.WorldMap;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -71,18 +71,21 @@ public class RollingStockRendering extends EntityRendererFactory {
 	}
 
 	protected static class TintedRotationSprites extends RotationSprites {
-		private final Cache<Long, SpriteDef> tintCache = CacheBuilder.newBuilder().maximumSize(100).build();
+		// Tinted definitions keep their mip levels between renders, bounded since
+		// the colors come from blueprints
+		private final Cache<Long, SpriteDef> tinted = CacheBuilder.newBuilder().maximumSize(256).build();
 
 		public SpriteDef getSprite(double orientation, Color tint) {
 			int index = getRotationIndex(orientation);
-			long key = (index << 32) + tint.getRGB();
-			SpriteDef sprite = tintCache.getIfPresent(key);
-			if (sprite == null) {
-				SpriteDef baseSprite = sprites.get(index);
-				sprite = baseSprite.withImage(Utils.tintImage(baseSprite.getImage(), tint));
-				tintCache.put(key, sprite);
+			long key = ((long) index << 32) | (tint.getRGB() & 0xFFFFFFFFL);
+			SpriteDef ret = tinted.getIfPresent(key);
+			if (ret == null) {
+				SpriteDef def = sprites.get(index);
+				// The mask keeps the tint of its prototype under the color
+				ret = def.withTint(def.getTint() != null ? TintedImageCache.combine(def.getTint(), tint) : tint);
+				tinted.put(key, ret);
 			}
-			return sprite;
+			return ret;
 		}
 	}
 
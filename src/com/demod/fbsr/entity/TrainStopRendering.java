@@ -7,7 +7,6 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.demod.factorio.DataTable;
-import com.demod.factorio.Utils;
 import com.demod.factorio.prototype.EntityPrototype;
 import com.demod.fbsr.BlueprintEntity;
 import com.demod.fbsr.Direction;
@@ -18,6 +17,7 @@ import com.demod.fbsr.Renderer;
 import com.demod.fbsr.Renderer.Layer;
 import com.demod.fbsr.Sprite;
 import com.demod.fbsr.SpriteDef;
+import com.demod.fbsr.TintedImageCache;
 import com.demod.fbsr.WorldMap;
 
 public class TrainStopRendering extends EntityRendererFactory {
@@ -37,7 +37,8 @@ public class TrainStopRendering extends EntityRendererFactory {
 
 		List<Sprite> topSprites = protoDirTopSprites.get(entity.getDirection()).stream().map(SpriteDef::createSprite)
 				.collect(Collectors.toList());
-		topSprites.get(1).image = Utils.tintImage(topSprites.get(1).image, color);
+		Sprite topSprite = topSprites.get(1);
+		topSprite.tint = topSprite.tint != null ? TintedImageCache.combine(topSprite.tint, color) : color;
 
 		register.accept(RenderUtils.spriteDirDefRenderer(Layer.RAIL_BACKPLATES, protoDirRailSprites, entity,
 				protoSelectionBox));
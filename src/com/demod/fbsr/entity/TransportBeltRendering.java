@@ -3,7 +3,6 @@ package com.demod.fbsr.entity;
 import java.awt.geom.Point2D;
 import java.util.function.Consumer;
 
-import org.json.JSONObject;
 import org.luaj.vm2.LuaValue;
 
 import com.demod.factorio.DataTable;
@@ -78,14 +77,13 @@ public class TransportBeltRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		BeltBend bend = map.getBeltBend(entity.getPosition()).get();
+		BeltBend bend = map.getBeltBend(WorldMap.tile(entity.getX()), WorldMap.tile(entity.getY()));
 
 		SpriteDef sprite = protoBeltSprites[entity.getDirection().cardinal()][bend.ordinal()];
 
 		register.accept(RenderUtils.spriteDefRenderer(sprite, entity, protoSelectionBox));
 
-		JSONObject connectionsJson = entity.json().optJSONObject("connections");
-		if (connectionsJson != null && connectionsJson.length() > 0) {
+		if (entity.getConnections() != null) {
 			int connectorFrameMappingIndex = transportBeltConnectorFrameMappingIndex[entity.getDirection()
 					.cardinal()][bend.ordinal()];
 
@@ -120,7 +118,7 @@ public class TransportBeltRendering extends EntityRendererFactory {
 		setLogisticMove(map, pos, dir.frontLeft(), dir);
 		setLogisticMove(map, pos, dir.frontRight(), dir);
 
-		BeltBend bend = map.getBeltBend(pos).get();
+		BeltBend bend = map.getBeltBend(WorldMap.tile(pos.x), WorldMap.tile(pos.y));
 		switch (bend) {
 		case FROM_LEFT:
 			setLogisticMove(map, pos, dir.backLeft(), dir.right());
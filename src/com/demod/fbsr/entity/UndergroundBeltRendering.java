@@ -26,7 +26,7 @@ public class UndergroundBeltRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 		Direction structDir = input ? entity.getDirection() : entity.getDirection().back();
 
 		SpriteDef beltSprite = protoBeltSprites[entity.getDirection().cardinal()][BeltBend.NONE.ordinal()];
@@ -55,7 +55,7 @@ public class UndergroundBeltRendering extends EntityRendererFactory {
 	public void populateLogistics(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
 		Direction dir = entity.getDirection();
 		Point2D.Double pos = entity.getPosition();
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 
 		if (input) {
 			setLogisticMove(map, pos, dir.backLeft(), dir);
@@ -71,9 +71,12 @@ public class UndergroundBeltRendering extends EntityRendererFactory {
 		}
 
 		if (input) {
+			int x = WorldMap.tile(pos.x);
+			int y = WorldMap.tile(pos.y);
 			for (int offset = 1; offset <= protoMaxDistance; offset++) {
-				Point2D.Double targetPos = dir.offset(pos, offset);
-				if (map.isMatchingUndergroundBeltEnding(entity.getName(), targetPos, dir)) {
+				if (map.isMatchingUndergroundBeltEnding(entity.getName(), dir.offsetX(x, offset),
+						dir.offsetY(y, offset), dir)) {
+					Point2D.Double targetPos = dir.offset(pos, offset);
 					addLogisticWarp(map, pos, dir.frontLeft(), targetPos, dir.backLeft());
 					addLogisticWarp(map, pos, dir.frontRight(), targetPos, dir.backRight());
 					break;
@@ -84,7 +87,7 @@ public class UndergroundBeltRendering extends EntityRendererFactory {
 
 	@Override
 	public void populateWorldMap(WorldMap map, DataTable dataTable, BlueprintEntity entity) {
-		boolean input = entity.json().getString("type").equals("input");
+		boolean input = entity.isInput();
 
 		if (input) {
 			map.setBelt(entity.getPosition(), entity.getDirection(), false, false);
@@ -1,6 +1,5 @@
 package com.demod.fbsr.entity;
 
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,7 +12,6 @@ import com.demod.factorio.DataTable;
 import com.demod.factorio.Utils;
 import com.demod.factorio.prototype.EntityPrototype;
 import com.demod.fbsr.BlueprintEntity;
-import com.demod.fbsr.Direction;
 import com.demod.fbsr.EntityRendererFactory;
 import com.demod.fbsr.RenderUtils;
 import com.demod.fbsr.Renderer;
@@ -47,26 +45,18 @@ public class WallRendering extends EntityRendererFactory {
 	@Override
 	public void createRenderers(Consumer<Renderer> register, WorldMap map, DataTable dataTable,
 			BlueprintEntity entity) {
-		Point2D.Double pos = entity.getPosition();
+		int x = WorldMap.tile(entity.getX());
+		int y = WorldMap.tile(entity.getY());
 
-		boolean northGate = map.isVerticalGate(Direction.NORTH.offset(pos));
-		boolean eastGate = map.isHorizontalGate(Direction.EAST.offset(pos));
-		boolean southGate = map.isVerticalGate(Direction.SOUTH.offset(pos));
-		boolean westGate = map.isHorizontalGate(Direction.WEST.offset(pos));
-
-		int adjCode = 0;
-		adjCode |= ((map.isWall(Direction.NORTH.offset(pos)) || northGate ? 1 : 0) << 0);
-		adjCode |= ((map.isWall(Direction.EAST.offset(pos)) || eastGate ? 1 : 0) << 1);
-		adjCode |= ((map.isWall(Direction.SOUTH.offset(pos)) || southGate ? 1 : 0) << 2);
-		adjCode |= ((map.isWall(Direction.WEST.offset(pos)) || westGate ? 1 : 0) << 3);
+		int adjCode = map.getWallConnections(x, y);
 
 		List<SpriteDef> wallSprites = protoWallSprites.get(adjCode);
-		int variation = Math.abs((int) pos.x + (int) pos.y) % (wallSprites.size() / 2);
+		int variation = Math.abs((int) entity.getX() + (int) entity.getY()) % (wallSprites.size() / 2);
 
 		register.accept(RenderUtils.spriteDefRenderer(wallSprites.get(variation * 2), entity, protoSelectionBox));
 		register.accept(RenderUtils.spriteDefRenderer(wallSprites.get(variation * 2 + 1), entity, protoSelectionBox));
 
-		if (northGate || eastGate || southGate || westGate) {
+		if (map.getGateConnections(x, y) != 0) {
 			register.accept(RenderUtils.spriteDefRenderer(protoWallDiodeSprite, entity, protoSelectionBox));
 		}
 
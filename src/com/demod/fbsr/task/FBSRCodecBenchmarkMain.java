@@ -0,0 +1,156 @@
+package com.demod.fbsr.task;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.codec.binary.Base64;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.demod.fbsr.BlueprintStringData;
+
+/**
+ * Compares the allocations of encoding and decoding blueprint strings as they
+ * were before the codec pool (a new zlib codec and new buffers per call, and
+ * decoding through the whole JSON text) against the pooled codec and streaming
+ * decoder of {@link BlueprintStringData}. Allocations are counted by the
+ * HotSpot thread MX bean; on other JVMs only times are reported.
+ */
+public class FBSRCodecBenchmarkMain {
+	@FunctionalInterface
+	private static interface Operation {
+		void run() throws IOException;
+	}
+
+	private static final int WARMUP = 200;
+	private static final int ITERATIONS = 1000;
+
+	// Null if the JVM does not count allocations per thread
+	private static final com.sun.management.ThreadMXBean allocationCounter = findAllocationCounter();
+
+	private static JSONObject createBook(int pages, int entitiesPerPage) {
+		JSONArray blueprintsJson = new JSONArray();
+		for (int page = 0; page < pages; page++) {
+			JSONArray entitiesJson = new JSONArray();
+			for (int i = 0; i < entitiesPerPage; i++) {
+				JSONObject positionJson = new JSONObject();
+				positionJson.put("x", (i % 50) * 3 + 1.5);
+				positionJson.put("y", (i / 50) * 3 + 1.5);
+				JSONObject entityJson = new JSONObject();
+				entityJson.put("entity_number", i + 1);
+				entityJson.put("name", "assembling-machine-2");
+				entityJson.put("position", positionJson);
+				entityJson.put("direction", (i % 4) * 2);
+				entityJson.put("recipe", "electronic-circuit");
+				entitiesJson.put(entityJson);
+			}
+			JSONObject blueprintJson = new JSONObject();
+			blueprintJson.put("item", "blueprint");
+			blueprintJson.put("label", "Page " + page);
+			blueprintJson.put("entities", entitiesJson);
+			blueprintJson.put("version", 281479274889217L);
+			JSONObject pageJson = new JSONObject();
+			pageJson.put("blueprint", blueprintJson);
+			pageJson.put("index", page);
+			blueprintsJson.put(pageJson);
+		}
+		JSONObject bookJson = new JSONObject();
+		bookJson.put("item", "blueprint-book");
+		bookJson.put("blueprints", blueprintsJson);
+		bookJson.put("active_index", 0);
+		bookJson.put("version", 281479274889217L);
+		JSONObject ret = new JSONObject();
+		ret.put("blueprint_book", bookJson);
+		return ret;
+	}
+
+	private static com.sun.management.ThreadMXBean findAllocationCounter() {
+		try {
+			ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+				com.sun.management.ThreadMXBean ret = (com.sun.management.ThreadMXBean) bean;
+				ret.setThreadAllocatedMemoryEnabled(true);
+				return ret;
+			}
+		} catch (LinkageError e) {
+			// The JVM has no com.sun.management
+		}
+		return null;
+	}
+
+	private static long getAllocatedBytes() {
+		if (allocationCounter == null) {
+			return 0;
+		}
+		return allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public static void main(String[] args) throws IOException {
+		JSONObject json = createBook(args.length > 0 ? Integer.parseInt(args[0]) : 4,
+				args.length > 1 ? Integer.parseInt(args[1]) : 200);
+		String blueprintString = BlueprintStringData.encode(json);
+		System.out.println("Blueprint string: " + blueprintString.length() + " chars");
+		if (allocationCounter == null) {
+			System.out.println("Allocations are not counted on this JVM, only times are reported");
+		}
+
+		report("Encode", () -> unpooledEncode(json), () -> BlueprintStringData.encode(json));
+		report("Decode", () -> unpooledDecode(blueprintString), () -> BlueprintStringData.decode(blueprintString));
+	}
+
+	private static long[] measure(Operation operation) throws IOException {
+		for (int i = 0; i < WARMUP; i++) {
+			operation.run();
+		}
+		long startBytes = getAllocatedBytes();
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			operation.run();
+		}
+		long endNanos = System.nanoTime();
+		long endBytes = getAllocatedBytes();
+		return new long[] { (endBytes - startBytes) / ITERATIONS, (endNanos - startNanos) / ITERATIONS / 1000 };
+	}
+
+	private static void report(String name, Operation unpooled, Operation pooled) throws IOException {
+		long[] before = measure(unpooled);
+		long[] after = measure(pooled);
+		System.out.println(name + ":");
+		System.out.println("\tUnpooled: " + before[0] + " bytes/op, " + before[1] + " us/op, 1 zlib stream/op");
+		System.out.println("\tPooled:   " + after[0] + " bytes/op, " + after[1] + " us/op, 1 zlib stream/thread");
+		if (allocationCounter != null) {
+			System.out.printf("\tAllocation reduction: %.1f%%%n", 100.0 * (before[0] - after[0]) / before[0]);
+		}
+	}
+
+	private static JSONObject unpooledDecode(String blueprintString) throws IOException {
+		byte[] decoded = Base64.decodeBase64(blueprintString.substring(1));
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(
+				new InflaterInputStream(new ByteArrayInputStream(decoded)), StandardCharsets.UTF_8))) {
+			StringBuilder jsonBuilder = new StringBuilder();
+			String line;
+			while ((line = br.readLine()) != null) {
+				jsonBuilder.append(line);
+			}
+			return new JSONObject(jsonBuilder.toString());
+		}
+	}
+
+	private static String unpooledEncode(JSONObject json) throws IOException {
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				DeflaterOutputStream dos = new DeflaterOutputStream(baos)) {
+			dos.write(json.toString().getBytes(StandardCharsets.UTF_8));
+			dos.close();
+			return "0" + Base64.encodeBase64String(baos.toByteArray());
+		}
+	}
+}
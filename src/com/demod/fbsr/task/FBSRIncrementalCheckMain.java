@@ -0,0 +1,81 @@
+package com.demod.fbsr.task;
+
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONObject;
+
+import com.demod.dcba.CommandReporting;
+import com.demod.fbsr.Blueprint;
+import com.demod.fbsr.BlueprintEntity;
+import com.demod.fbsr.BlueprintStringData;
+import com.demod.fbsr.FBSR;
+
+/**
+ * Checks that incremental updates draw the same image as a full render. Each
+ * entity of the first blueprint in the blueprint string file is rotated in
+ * turn, applied with {@link FBSR#updateIncrementalRendering}, and the image
+ * compared pixel for pixel with a new rendering of the edited blueprint JSON.
+ * Exits with status 1 if any edit did not match.
+ */
+public class FBSRIncrementalCheckMain {
+
+	private static int countMismatches(BufferedImage expected, BufferedImage actual) {
+		if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+			return expected.getWidth() * expected.getHeight();
+		}
+		int ret = 0;
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+					ret++;
+				}
+			}
+		}
+		return ret;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String blueprintString = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8).trim();
+		int maxEdits = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		Blueprint blueprint = new BlueprintStringData(blueprintString).getBlueprints().get(0);
+		List<BlueprintEntity> entities = blueprint.getEntities();
+		// Directions count eighths in the old format and sixteenths in the new
+		int quarterTurn = blueprint.getVersion().greaterOrEquals(Blueprint.VERSION_NEW_FORMAT) ? 4 : 2;
+
+		int failures = 0;
+		try (FBSR.IncrementalRendering incremental = FBSR.createIncrementalRendering(blueprint,
+				new CommandReporting("Incremental Check", null, null), new JSONObject())) {
+			int step = Math.max(1, entities.size() / maxEdits);
+			for (int i = 0; i < entities.size(); i += step) {
+				BlueprintEntity entity = entities.get(i);
+				JSONObject json = entity.json();
+				json.put("direction", (json.optInt("direction", 0) + quarterTurn) % (quarterTurn * 4));
+
+				BufferedImage updated = FBSR.updateIncrementalRendering(incremental, Arrays.asList(entity),
+						new CommandReporting("Incremental Check", null, null));
+				// Parsed again, as rendering aligns the entities of the blueprint in place
+				try (FBSR.IncrementalRendering full = FBSR.createIncrementalRendering(new Blueprint(blueprint.json()),
+						new CommandReporting("Incremental Check", null, null), new JSONObject())) {
+					int mismatches = countMismatches(full.getImage(), updated);
+					System.out.println(entity.getName() + " #" + entity.getId() + ": " + mismatches
+							+ " mismatched pixels");
+					if (mismatches > 0) {
+						failures++;
+					}
+				}
+			}
+		}
+
+		if (failures > 0) {
+			System.out.println(failures + " edits did not match a full render");
+			System.exit(1);
+		}
+		System.out.println("All edits matched a full render");
+	}
+
+}